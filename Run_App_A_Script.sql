@@ -1,8 +1,11 @@
 -- dropped the tables in reverse order to prevent FK conflicts
+DROP TABLE IF EXISTS run_samples;
+DROP TABLE IF EXISTS run_daily_rollup;
 DROP TABLE IF EXISTS rungoals;
 DROP TABLE IF EXISTS runs;
 DROP TABLE IF EXISTS goals;
 DROP TABLE IF EXISTS goaltypes;
+DROP TABLE IF EXISTS sync_sequences;
 DROP TABLE IF EXISTS users;
 
 -- username cant be null and userID autoincrements. 
@@ -20,15 +23,21 @@ CREATE TABLE users (
 -- userID and goalTypeID must match a value in their relevant tables
 -- delete cascade means goals associated with the userID will be deleted when the userID is deleted
 -- similar concept with goalTypeID
+-- goalDistance is in the goal's unit as the user entered it, goalMetres is the same distance in metres (set by the backend)
+-- progressMetres is the sum of the goal's contributions in rungoals, so progress is compared in metres whatever the units
 CREATE TABLE goals (
 	goalID INT PRIMARY KEY AUTO_INCREMENT,
     userID INT NOT NULL,
     goalName VARCHAR(100) NOT NULL,
     goalDistance DECIMAL(6,2),
+    goalMetres INT,
     goalFrequency VARCHAR(50),
     targetDate DATE,
     unit ENUM('km', 'miles') DEFAULT 'km',
     isDeleted BOOLEAN DEFAULT FALSE,
+    progressMetres BIGINT NOT NULL DEFAULT 0,
+    changeSeq BIGINT NOT NULL DEFAULT 0,
+    updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
     FOREIGN KEY (userID) REFERENCES users(userID) ON DELETE CASCADE,
     CHECK (goalDistance IS NOT NULL OR goalFrequency IS NOT NULL)
 );
@@ -40,32 +49,90 @@ CREATE TABLE goals (
 -- isDeleted auto set to false and allows for undoDeletion
 -- runs associated with userID will be deleted if the userID is deleted
 -- distance is >0
+-- the duration is in whole seconds, it used to be a TIME column which meant a run had to be under 24 hours
+-- to move an existing database over:
+--   ALTER TABLE runs ADD durationSeconds INT NOT NULL DEFAULT 0 AFTER runDistance;
+--   UPDATE runs SET durationSeconds = TIME_TO_SEC(runDuration);
+--   ALTER TABLE runs DROP COLUMN runDuration;
+-- distanceMetres is runDistance in metres, set by the backend on every write so km and miles runs can be summed in SQL
+-- the API converts it into the user's unit, runDistance and unit are kept as the user entered them
 CREATE TABLE runs (
     runID INT PRIMARY KEY AUTO_INCREMENT,
     userID INT NOT NULL,
     runDate DATE NOT NULL,
     runDistance DECIMAL(6,2) NOT NULL CHECK (runDistance > 0),
-    runDuration TIME NOT NULL,
+    distanceMetres INT NOT NULL DEFAULT 0,
+    durationSeconds INT NOT NULL CHECK (durationSeconds >= 0),
     runSpeed DECIMAL(5,2),
     unit ENUM('km', 'miles'),
     additionalDetails TEXT,
     isDeleted BOOLEAN DEFAULT FALSE,
+    changeSeq BIGINT NOT NULL DEFAULT 0,
+    updatedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
     FOREIGN KEY (userID) REFERENCES users(userID) ON DELETE CASCADE
 );
 
 -- all runGoals associated with runID's will be deleted if the runID is deleted
 -- this is useful since the progress won't be kept for a goal if a run that contributed to the total is delted. 
 -- same with goalID 
+-- contributionMetres is the run's distance in metres, goals.progressMetres is the sum of a goal's contributions
 CREATE TABLE rungoals (
     runGoalID INT PRIMARY KEY AUTO_INCREMENT,
     runID INT NOT NULL,
     goalID INT NOT NULL,
-    contributionQuantity DECIMAL(6,2) CHECK (contributionQuantity > 0),
+    contributionMetres INT NOT NULL CHECK (contributionMetres > 0),
     FOREIGN KEY (runID) REFERENCES runs(runID) ON DELETE CASCADE,
     FOREIGN KEY (goalID) REFERENCES goals(goalID) ON DELETE CASCADE
 );
 
+-- the per-second samples of a run (elapsed time, distance, pace) packed into one blob per run
+-- delta + varint encoded by the backend, so an hour long run is a few KB instead of thousands of rows
+CREATE TABLE run_samples (
+    runID INT PRIMARY KEY,
+    sampleCount INT NOT NULL,
+    sampleData MEDIUMBLOB NOT NULL,
+    FOREIGN KEY (runID) REFERENCES runs(runID) ON DELETE CASCADE
+);
+
+-- one row per user per day with the totals of that day's non-deleted runs
+-- distance is stored in metres so km and miles runs can be summed together
+-- kept up to date by the backend whenever a run is added, edited, deleted or restored
+-- (start the backend with --rebuild-rollups to regenerate it from the runs table)
+CREATE TABLE run_daily_rollup (
+    userID INT NOT NULL,
+    runDay DATE NOT NULL,
+    distanceMetres BIGINT NOT NULL DEFAULT 0,
+    totalSeconds BIGINT NOT NULL DEFAULT 0,
+    runCount INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (userID, runDay),
+    FOREIGN KEY (userID) REFERENCES users(userID) ON DELETE CASCADE
+);
+
+-- the last change sequence number given out per user, every write to a user's runs or goals takes the next one(s)
+-- and stores it in the row's changeSeq, soft deletes included, so /api/sync can return what changed after a number
+-- the row stays locked until the write commits, so a user's changes commit in sequence order
+CREATE TABLE sync_sequences (
+    userID INT PRIMARY KEY,
+    lastSeq BIGINT NOT NULL DEFAULT 0,
+    FOREIGN KEY (userID) REFERENCES users(userID) ON DELETE CASCADE
+);
+
 -- lets data be reached much quicker
 CREATE INDEX idx_user_run ON runs(userID, runDate);
 CREATE INDEX idx_goal_user ON goals(userID);
 CREATE INDEX idx_run_goal ON rungoals(runID, goalID);
+CREATE INDEX idx_run_sync ON runs(userID, changeSeq);
+CREATE INDEX idx_goal_sync ON goals(userID, changeSeq);
+-- covers the run summary, SUM(distanceMetres) over a date range is read from the index alone
+CREATE INDEX idx_run_totals ON runs(userID, isDeleted, runDate, distanceMetres, durationSeconds);
+
+-- moving an existing database over to the metres columns:
+--   ALTER TABLE runs ADD distanceMetres INT NOT NULL DEFAULT 0 AFTER runDistance;
+--   ALTER TABLE goals ADD goalMetres INT AFTER goalDistance, ADD progressMetres BIGINT NOT NULL DEFAULT 0 AFTER progressTotal;
+--   ALTER TABLE rungoals ADD contributionMetres INT NOT NULL DEFAULT 0 AFTER contributionQuantity;
+--   UPDATE rungoals rg JOIN goals g ON g.goalID = rg.goalID
+--       SET rg.contributionMetres = ROUND(rg.contributionQuantity * CASE WHEN g.unit = 'miles' THEN 1609.344 ELSE 1000 END);
+--   UPDATE goals g SET progressMetres = (SELECT COALESCE(SUM(contributionMetres), 0) FROM rungoals WHERE goalID = g.goalID);
+--   ALTER TABLE rungoals DROP COLUMN contributionQuantity;
+--   ALTER TABLE goals DROP COLUMN progressTotal;
+--   then start the backend once with --backfill-metres (fills runs.distanceMetres and goals.goalMetres in batches)
@@ -0,0 +1,102 @@
+#!/usr/bin/env bash
+# this script runs load.js against the application once on platform threads and once on virtual threads and writes
+# results/report.md comparing the two, see README.md for what it needs
+#   APP_JAR=../../target/runningapp-0.0.1-SNAPSHOT-exec.jar FIRST_USER=1 LAST_USER=1000 ./compare.sh \
+#       --spring.datasource.url=jdbc:mysql://localhost:3306/runapp --spring.datasource.username=root --spring.datasource.password=secret
+# any arguments are passed on to the application in both runs
+set -euo pipefail
+
+cd "$(dirname "$0")"
+APP_JAR=${APP_JAR:-../../target/runningapp-0.0.1-SNAPSHOT-exec.jar}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+HEALTH_URL=${HEALTH_URL:-http://localhost:8081/actuator/health}
+METRICS_URL=${METRICS_URL:-http://localhost:8081/actuator/prometheus}
+VUS=${VUS:-1000}
+HOLD=${HOLD:-5m}
+FIRST_USER=${FIRST_USER:-1}
+LAST_USER=${LAST_USER:-1000}
+WRITE_RATIO=${WRITE_RATIO:-0.05}
+THINK_SECONDS=${THINK_SECONDS:-1}
+RESULTS=results
+
+for tool in java k6 jq curl; do
+    command -v "$tool" > /dev/null || { echo "$tool is needed on the PATH" >&2; exit 1; }
+done
+# spring boot ignores spring.threads.virtual.enabled below Java 21, both runs would then be on platform threads
+java_major=$(java -XshowSettings:properties -version 2>&1 | awk -F' = ' '/java.specification.version/ { print $2 }')
+if [ "${java_major%%.*}" -lt 21 ]; then
+    echo "virtual threads need a Java 21+ runtime, this one is $java_major" >&2
+    exit 1
+fi
+[ -f "$APP_JAR" ] || { echo "no application jar at $APP_JAR, build it with mvn package in the repository root first" >&2; exit 1; }
+
+mkdir -p "$RESULTS"
+app_pid=
+
+stop_app() {
+    if [ -n "$app_pid" ]; then
+        kill "$app_pid" 2> /dev/null || true
+        wait "$app_pid" 2> /dev/null || true
+        app_pid=
+    fi
+}
+trap stop_app EXIT
+
+run_mode() {
+    local mode=$1 virtual=$2
+    echo "== $mode threads"
+    java -jar "$APP_JAR" --spring.threads.virtual.enabled="$virtual" "${@:3}" > "$RESULTS/$mode-app.log" 2>&1 &
+    app_pid=$!
+    for _ in $(seq 1 120); do
+        curl -sf "$HEALTH_URL" > /dev/null && break
+        kill -0 "$app_pid" 2> /dev/null || { echo "the application stopped, see $RESULTS/$mode-app.log" >&2; exit 1; }
+        sleep 1
+    done
+    curl -sf "$HEALTH_URL" > /dev/null || { echo "the application didn't start within 2 minutes" >&2; exit 1; }
+
+    # k6 exits non zero when a threshold fails, the summary is still written and the report says so
+    k6 run --quiet --summary-export "$RESULTS/$mode.json" \
+        -e BASE_URL="$BASE_URL" -e FIRST_USER="$FIRST_USER" -e LAST_USER="$LAST_USER" -e VUS="$VUS" -e HOLD="$HOLD" \
+        -e WRITE_RATIO="$WRITE_RATIO" -e THINK_SECONDS="$THINK_SECONDS" load.js || true
+    # the pool wait times and the request timers as the server saw them
+    curl -sf "$METRICS_URL" > "$RESULTS/$mode-metrics.txt" || true
+    # pinned virtual threads are logged by PinningMonitor (only the first few, with their stacks)
+    grep -A8 "VIRTUAL THREAD PINNED" "$RESULTS/$mode-app.log" > "$RESULTS/$mode-pinning.txt" || true
+    stop_app
+}
+
+run_mode platform false "$@"
+run_mode virtual true "$@"
+
+# one row per metric, platform and virtual side by side
+row() {
+    local label=$1 metric=$2 stat=$3
+    local p v
+    p=$(jq -r --arg m "$metric" --arg s "$stat" '.metrics[$m][$s] // "-"' "$RESULTS/platform.json")
+    v=$(jq -r --arg m "$metric" --arg s "$stat" '.metrics[$m][$s] // "-"' "$RESULTS/virtual.json")
+    printf '| %s | %s | %s |\n' "$label" "$p" "$v"
+}
+
+{
+    echo "# Platform vs virtual threads"
+    echo
+    echo "$VUS virtual users for $HOLD (after a 1 minute ramp), think time ${THINK_SECONDS}s, write ratio $WRITE_RATIO,"
+    echo "users $FIRST_USER..$LAST_USER, $(java -version 2>&1 | head -1), run $(date -u +%Y-%m-%dT%H:%MZ)"
+    echo
+    echo "| metric | platform | virtual |"
+    echo "|---|---|---|"
+    row "requests/s" http_reqs rate
+    row "failed requests (rate)" http_req_failed value
+    row "latency avg (ms)" http_req_duration avg
+    row "latency p95 (ms)" http_req_duration "p(95)"
+    row "latency p99 (ms)" http_req_duration "p(99)"
+    row "latency max (ms)" http_req_duration max
+    for endpoint in recent totals summary goals sync write; do
+        row "$endpoint p95 (ms)" "endpoint_$endpoint" "p(95)"
+    done
+    echo
+    echo "Pinned virtual threads logged: $(grep -c "VIRTUAL THREAD PINNED" "$RESULTS/virtual-pinning.txt") (the log stops after the first few, see results/virtual-pinning.txt)"
+    echo "Server side metrics (hikaricp.connections.*, http.server.requests) are in results/*-metrics.txt"
+} > "$RESULTS/report.md"
+
+cat "$RESULTS/report.md"
@@ -0,0 +1,94 @@
+// this script is the load for comparing the platform and virtual thread modes, see README.md
+//   k6 run -e BASE_URL=http://localhost:8080 -e FIRST_USER=1 -e LAST_USER=1000 -e VUS=1000 load.js
+// every virtual user is one runner with the app open: it loads the homepage reads for its own user, waits a moment
+// and loads them again. The mix is the existing read endpoints, some answered from memory (recent runs, totals) and
+// some from MySQL (summary, goals, sync), plus a small share of run writes so the hot tier and rollup see changes
+import http from 'k6/http';
+import { check, group, sleep } from 'k6';
+import { Trend } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const FIRST_USER = parseInt(__ENV.FIRST_USER || '1');
+const LAST_USER = parseInt(__ENV.LAST_USER || '1000');
+const VUS = parseInt(__ENV.VUS || '1000');
+const HOLD = __ENV.HOLD || '5m';
+// the share of iterations that also add a run, 0 for a read only test
+const WRITE_RATIO = parseFloat(__ENV.WRITE_RATIO || '0.05');
+// seconds a runner waits between page loads, 0 makes every virtual user a closed loop client
+const THINK_SECONDS = parseFloat(__ENV.THINK_SECONDS || '1');
+const JSON_HEADERS = { headers: { 'Content-Type': 'application/json' } };
+
+// one trend per endpoint, so the report can tell the in-memory reads from the database ones
+const endpointTrends = {
+    recent: new Trend('endpoint_recent', true),
+    totals: new Trend('endpoint_totals', true),
+    summary: new Trend('endpoint_summary', true),
+    goals: new Trend('endpoint_goals', true),
+    sync: new Trend('endpoint_sync', true),
+    write: new Trend('endpoint_write', true),
+};
+
+export const options = {
+    scenarios: {
+        runners: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '1m', target: VUS },
+                { duration: HOLD, target: VUS },
+                { duration: '30s', target: 0 },
+            ],
+            gracefulRampDown: '30s',
+        },
+    },
+    // k6 reports every metric it has for these in the summary export
+    summaryTrendStats: ['avg', 'med', 'p(90)', 'p(95)', 'p(99)', 'max'],
+    // the run fails (but still writes its summary) when more than 1% of requests fail
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+function get(name, url) {
+    // each request is a fresh load, no If-None-Match, so an ETag never turns it into a 304
+    const res = http.get(url, { tags: { endpoint: name } });
+    check(res, { [`${name} 200`]: (r) => r.status === 200 });
+    endpointTrends[name].add(res.timings.duration);
+    return res;
+}
+
+function today(offsetDays) {
+    return new Date(Date.now() + offsetDays * 86400000).toISOString().substring(0, 10);
+}
+
+export default function () {
+    // the same runner stays with the same user, spread over the seeded range
+    const userId = FIRST_USER + ((__VU - 1) % (LAST_USER - FIRST_USER + 1));
+
+    group('homepage', () => {
+        get('recent', `${BASE_URL}/api/runs/recent/${userId}`);
+        get('totals', `${BASE_URL}/api/runs/totals/${userId}?from=${today(-30)}&to=${today(0)}`);
+        get('summary', `${BASE_URL}/api/runs/summary/${userId}?from=${today(-90)}&to=${today(0)}&period=week`);
+        get('goals', `${BASE_URL}/api/goals/user/${userId}`);
+        get('sync', `${BASE_URL}/api/sync/${userId}?since=0&limit=100`);
+    });
+
+    if (Math.random() < WRITE_RATIO) {
+        const run = {
+            userID: userId,
+            runDate: today(0),
+            runDistance: '5.00',
+            runDuration: '00:27:30',
+            runSpeed: '10.91',
+            unit: 'km',
+            additionalDetails: 'load test',
+        };
+        const res = http.post(`${BASE_URL}/api/runs`, JSON.stringify(run), Object.assign({ tags: { endpoint: 'write' } }, JSON_HEADERS));
+        check(res, { 'write 200': (r) => r.status === 200 });
+        endpointTrends.write.add(res.timings.duration);
+    }
+
+    if (THINK_SECONDS > 0) {
+        sleep(THINK_SECONDS);
+    }
+}
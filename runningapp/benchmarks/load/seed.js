@@ -0,0 +1,69 @@
+// this script creates the users and runs the load test reads, run it once against an empty database before load.js
+//   k6 run -e BASE_URL=http://localhost:8080 -e USERS=1000 -e RUNS_PER_USER=200 seed.js
+// the users are made through the API so the passwords are hashed and the runs through /api/runs/batch so the daily
+// rollup and goals are kept as they would be. It prints the range of user IDs to give load.js
+import http from 'k6/http';
+import { check, fail } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERS = parseInt(__ENV.USERS || '1000');
+const RUNS_PER_USER = parseInt(__ENV.RUNS_PER_USER || '200');
+const JSON_HEADERS = { headers: { 'Content-Type': 'application/json' } };
+
+export const options = {
+    vus: 1,
+    iterations: 1,
+    // every user is a bcrypt hash on the server, a thousand of them take a few minutes
+    setupTimeout: '30m',
+    teardownTimeout: '1m',
+};
+
+function isoDate(daysAgo) {
+    const d = new Date(Date.now() - daysAgo * 86400000);
+    return d.toISOString().substring(0, 10);
+}
+
+// one run every other day going back from today, so the recent, summary and totals reads all have rows to add up
+function runsFor(userID) {
+    const runs = [];
+    for (let i = 0; i < RUNS_PER_USER; i++) {
+        const km = 3 + (i % 12);
+        const seconds = km * (300 + (i % 60));
+        const hh = String(Math.floor(seconds / 3600)).padStart(2, '0');
+        const mm = String(Math.floor(seconds / 60) % 60).padStart(2, '0');
+        const ss = String(seconds % 60).padStart(2, '0');
+        runs.push({
+            userID: userID,
+            runDate: isoDate(i * 2),
+            runDistance: km.toFixed(2),
+            runDuration: `${hh}:${mm}:${ss}`,
+            runSpeed: (km / (seconds / 3600)).toFixed(2),
+            unit: 'km',
+            additionalDetails: 'load test',
+        });
+    }
+    return runs;
+}
+
+export default function () {
+    const prefix = `load${Date.now()}_`;
+    let first = null;
+    let last = null;
+    for (let i = 0; i < USERS; i++) {
+        const user = { username: prefix + i, name: `Load ${i}`, password: 'load-test', unitPreference: 'km' };
+        const res = http.post(`${BASE_URL}/api/users`, JSON.stringify(user), JSON_HEADERS);
+        if (!check(res, { 'user created': (r) => r.status === 200 })) {
+            fail(`creating user ${i} failed: ${res.status} ${res.body}`);
+        }
+        const userID = res.json('data.userID');
+        // a batch holds at most 1000 runs
+        const runs = runsFor(userID);
+        for (let from = 0; from < runs.length; from += 1000) {
+            const batch = http.post(`${BASE_URL}/api/runs/batch`, JSON.stringify(runs.slice(from, from + 1000)), JSON_HEADERS);
+            check(batch, { 'runs imported': (r) => r.status === 200 });
+        }
+        first = first === null ? userID : Math.min(first, userID);
+        last = last === null ? userID : Math.max(last, userID);
+    }
+    console.log(`seeded users ${first}..${last}, run load.js with -e FIRST_USER=${first} -e LAST_USER=${last}`);
+}
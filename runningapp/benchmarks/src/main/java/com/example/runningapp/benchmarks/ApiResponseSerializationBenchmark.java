@@ -0,0 +1,53 @@
+package com.example.runningapp.benchmarks;
+
+import com.example.runningapp.model.ApiResponse;
+import com.example.runningapp.model.Run;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// this benchmark times writing an ApiResponse holding a list of runs as JSON, as the run list endpoints do
+// the object mapper is built the same way spring boot builds the one used for responses
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int runs;
+
+    private ObjectWriter writer;
+    private ApiResponse response;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = mapper.writer();
+
+        List<Run> list = new ArrayList<>(runs);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < runs; i++) {
+            list.add(new Run(i + 1, 1, (int) start.plusDays(i % 365).toEpochDay(), 300 + i % 1700,
+                    1930, 950, "km",
+                    i % 3 == 0 ? null : "Easy run along the river", false));
+        }
+        response = new ApiResponse(true, "Runs retrieved successfully", list);
+    }
+
+    // the JSON is written to a stream that throws it away, so only the serialization is measured
+    @Benchmark
+    public void serialize() throws IOException {
+        writer.writeValue(OutputStream.nullOutputStream(), response);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.runningapp.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// this class runs the JMH benchmarks, it takes the same arguments as the normal JMH launcher
+// the difference is that results are always written as JSON (target/jmh-result.json unless -rff is given),
+// so a run on one commit can be compared with a run on another, e.g. with jmh.morethan.io
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        options.resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON));
+        options.result(commandLine.getResult().orElse("target/jmh-result.json"));
+        new Runner(options.build()).run();
+    }
+}
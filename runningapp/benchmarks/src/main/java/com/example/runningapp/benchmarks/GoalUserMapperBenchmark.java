@@ -0,0 +1,53 @@
+package com.example.runningapp.benchmarks;
+
+import com.example.runningapp.model.GoalRowMapper;
+import com.example.runningapp.model.UserRowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.sql.rowset.CachedRowSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// this benchmark times the generated goal and user row mappers (which replaced GoalMapper and mapRowToUser)
+// over an in-memory result set
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoalUserMapperBenchmark {
+
+    @Param({ "100", "10000" })
+    public int rows;
+
+    private CachedRowSet goals;
+    private CachedRowSet users;
+
+    @Setup
+    public void setUp() throws SQLException {
+        goals = ResultSets.goals(rows);
+        users = ResultSets.users(rows);
+    }
+
+    @Benchmark
+    public void goalRowMapper(Blackhole bh) throws SQLException {
+        GoalRowMapper mapper = new GoalRowMapper();
+        goals.beforeFirst();
+        int rowNum = 0;
+        while (goals.next()) {
+            bh.consume(mapper.mapRow(goals, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void userRowMapper(Blackhole bh) throws SQLException {
+        UserRowMapper mapper = new UserRowMapper();
+        users.beforeFirst();
+        int rowNum = 0;
+        while (users.next()) {
+            bh.consume(mapper.mapRow(users, rowNum++));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.runningapp.benchmarks;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+
+// this class builds in-memory result sets shaped like the runs, goals and users tables
+// a CachedRowSet is a full ResultSet (metadata included, which BeanPropertyRowMapper needs) that holds its rows in memory,
+// so the mappers can be benchmarked without a database. Call beforeFirst() to read it again
+public class ResultSets {
+
+    private static final String[] UNITS = { "km", "miles" };
+
+    public static CachedRowSet runs(int rows) throws SQLException {
+        CachedRowSet rs = create(new String[] { "runID", "userID", "runDate", "runDistance", "durationSeconds", "runSpeed",
+                "unit", "additionalDetails", "isDeleted" },
+                new int[] { Types.INTEGER, Types.INTEGER, Types.DATE, Types.DECIMAL, Types.INTEGER, Types.DECIMAL,
+                        Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN });
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < rows; i++) {
+            rs.moveToInsertRow();
+            rs.updateInt(1, i + 1);
+            rs.updateInt(2, 1 + i % 50);
+            rs.updateDate(3, Date.valueOf(start.plusDays(i % 365)));
+            rs.updateBigDecimal(4, BigDecimal.valueOf(300 + i % 1700, 2));
+            rs.updateInt(5, (15 + i % 45) * 60 + i % 60);
+            rs.updateBigDecimal(6, BigDecimal.valueOf(850 + i % 400, 2));
+            rs.updateString(7, UNITS[i % 2]);
+            rs.updateString(8, i % 3 == 0 ? null : "Easy run along the river " + i);
+            rs.updateBoolean(9, false);
+            rs.insertRow();
+        }
+        rs.moveToCurrentRow();
+        rs.beforeFirst();
+        return rs;
+    }
+
+    public static CachedRowSet goals(int rows) throws SQLException {
+        CachedRowSet rs = create(new String[] { "goalID", "userID", "goalName", "goalDistance", "goalFrequency",
+                "targetDate", "unit", "isDeleted", "progressMetres" },
+                new int[] { Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.DECIMAL, Types.VARCHAR, Types.DATE,
+                        Types.VARCHAR, Types.BOOLEAN, Types.BIGINT });
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < rows; i++) {
+            rs.moveToInsertRow();
+            rs.updateInt(1, i + 1);
+            rs.updateInt(2, 1 + i % 50);
+            rs.updateString(3, "Goal " + i);
+            rs.updateBigDecimal(4, BigDecimal.valueOf(5000 + i % 20000, 2));
+            rs.updateString(5, i % 2 == 0 ? "Weekly" : null);
+            rs.updateDate(6, i % 4 == 0 ? null : Date.valueOf(start.plusDays(i % 365)));
+            rs.updateString(7, UNITS[i % 2]);
+            rs.updateBoolean(8, false);
+            rs.updateLong(9, i % 5000 * 10L);
+            rs.insertRow();
+        }
+        rs.moveToCurrentRow();
+        rs.beforeFirst();
+        return rs;
+    }
+
+    public static CachedRowSet users(int rows) throws SQLException {
+        CachedRowSet rs = create(new String[] { "userID", "username", "name", "password", "unitPreference", "isDeleted" },
+                new int[] { Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN });
+        for (int i = 0; i < rows; i++) {
+            rs.moveToInsertRow();
+            rs.updateInt(1, i + 1);
+            rs.updateString(2, "runner" + i);
+            rs.updateString(3, "Runner Number " + i);
+            rs.updateString(4, "$2a$12$abcdefghijklmnopqrstuuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ01");
+            rs.updateString(5, UNITS[i % 2]);
+            rs.updateBoolean(6, false);
+            rs.insertRow();
+        }
+        rs.moveToCurrentRow();
+        rs.beforeFirst();
+        return rs;
+    }
+
+    private static CachedRowSet create(String[] columns, int[] types) throws SQLException {
+        RowSetMetaDataImpl meta = new RowSetMetaDataImpl();
+        meta.setColumnCount(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            meta.setColumnName(i + 1, columns[i]);
+            meta.setColumnLabel(i + 1, columns[i]);
+            meta.setColumnType(i + 1, types[i]);
+            meta.setNullable(i + 1, ResultSetMetaData.columnNullable);
+        }
+        CachedRowSet rs = RowSetProvider.newFactory().createCachedRowSet();
+        rs.setMetaData(meta);
+        return rs;
+    }
+}
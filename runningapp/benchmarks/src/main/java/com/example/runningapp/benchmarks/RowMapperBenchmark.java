@@ -0,0 +1,75 @@
+package com.example.runningapp.benchmarks;
+
+import com.example.runningapp.model.Run;
+import com.example.runningapp.model.RunRowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.rowset.CachedRowSet;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// this benchmark compares the generated RunRowMapper with the reflective BeanPropertyRowMapper RunDao used to have,
+// and with the hand-written name lookup mapper the generated one replaced. All are created per query, as in RunDao
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    @Param({ "100", "10000" })
+    public int rows;
+
+    private CachedRowSet runs;
+
+    @Setup
+    public void setUp() throws SQLException {
+        runs = ResultSets.runs(rows);
+    }
+
+    @Benchmark
+    public void generatedRowMapper(Blackhole bh) throws SQLException {
+        mapAll(new RunRowMapper(), bh);
+    }
+
+    @Benchmark
+    public void nameLookupMapper(Blackhole bh) throws SQLException {
+        mapAll(new NameLookupRunMapper(), bh);
+    }
+
+    @Benchmark
+    public void beanPropertyRowMapper(Blackhole bh) throws SQLException {
+        mapAll(new BeanPropertyRowMapper<>(Run.class), bh);
+    }
+
+    private void mapAll(RowMapper<Run> mapper, Blackhole bh) throws SQLException {
+        runs.beforeFirst();
+        int rowNum = 0;
+        while (runs.next()) {
+            bh.consume(mapper.mapRow(runs, rowNum++));
+        }
+    }
+
+    // the mapper RunDao had before the generated ones, every column is looked up by name on every row
+    private static class NameLookupRunMapper implements RowMapper<Run> {
+        @Override
+        public Run mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Run run = new Run();
+            run.setRunID(rs.getInt("runID"));
+            run.setUserID(rs.getInt("userID"));
+            run.setRunDate(rs.getDate("runDate").toLocalDate());
+            run.setRunDistance(rs.getBigDecimal("runDistance"));
+            run.setDurationSeconds(rs.getInt("durationSeconds"));
+            run.setRunSpeed(rs.getBigDecimal("runSpeed"));
+            run.setUnit(rs.getString("unit"));
+            run.setAdditionalDetails(rs.getString("additionalDetails"));
+            run.setIsDeleted(rs.getBoolean("isDeleted"));
+            return run;
+        }
+    }
+}
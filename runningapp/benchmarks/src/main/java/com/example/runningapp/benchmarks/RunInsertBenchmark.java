@@ -0,0 +1,97 @@
+package com.example.runningapp.benchmarks;
+
+import com.example.runningapp.RunAppApplication;
+import com.example.runningapp.dao.RunDao;
+import com.example.runningapp.model.Run;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// this benchmark compares the bulk import path (RunDao.addRuns, one JDBC batch) with adding the same runs one at a time
+// (RunDao.addRun per run, one transaction each), both through the application's own DAOs and transactions
+//
+// it needs a real MySQL database with the schema from Run_App_A_Script.sql, given as system properties:
+//   java -Dbench.db.url=jdbc:mysql://localhost:3306/runapp_bench -Dbench.db.user=root -Dbench.db.password=secret \
+//        -jar target/benchmarks.jar RunInsert
+// the runs are added to a user created for the benchmark, which is deleted again (with its runs) at the end
+// the score is the time for one batch of runs, divide by runs for the time per run
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1) // the forked JVM gets the -D options the launcher was started with
+public class RunInsertBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int runs;
+
+    private ConfigurableApplicationContext context;
+    private RunDao runDao;
+    private JdbcTemplate jdbcTemplate;
+    private int userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("bench.db.url");
+        if (url == null) {
+            throw new IllegalStateException("Set -Dbench.db.url (and bench.db.user, bench.db.password) to a MySQL database with the RunApp schema");
+        }
+        // given as command line arguments so they win over the application.properties in the application jar
+        // (which also sets rewriteBatchedStatements, the batch path depends on it)
+        context = new SpringApplicationBuilder(RunAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.datasource.username=" + System.getProperty("bench.db.user", "root"),
+                        "--spring.datasource.password=" + System.getProperty("bench.db.password", ""),
+                        "--runningapp.analytics.enabled=false");
+        runDao = context.getBean(RunDao.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        String username = "bench-" + System.nanoTime();
+        jdbcTemplate.update("INSERT INTO users (username, password) VALUES (?, 'x')", username);
+        userId = jdbcTemplate.queryForObject("SELECT userID FROM users WHERE username = ?", Integer.class, username);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (jdbcTemplate != null) {
+            // the runs and everything hanging off them go with the user (ON DELETE CASCADE)
+            jdbcTemplate.update("DELETE FROM users WHERE userID = ?", userId);
+        }
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int singleRows() {
+        int added = 0;
+        for (Run run : newRuns()) {
+            added += runDao.addRun(run);
+        }
+        return added;
+    }
+
+    @Benchmark
+    public int[] batch() {
+        return runDao.addRuns(newRuns());
+    }
+
+    // the same runs for both paths, spread over the last year
+    private List<Run> newRuns() {
+        int today = (int) LocalDate.now().toEpochDay();
+        List<Run> list = new ArrayList<>(runs);
+        for (int i = 0; i < runs; i++) {
+            list.add(new Run(0, userId, today - i % 365, 500 + i % 2000, 1500 + i % 1800, 1000, "km", null, false));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.runningapp.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// this annotation processor writes the row mapper and statement binder for every model class marked with @Table
+// it runs while the application is compiled (it is on the annotationProcessorPaths in the application's pom.xml),
+// so the generated classes are plain java with no reflection: columns are found by index once per query and the
+// getters/setters are called directly
+//
+// for a class Run it generates
+//   RunRowMapper - a RowMapper<Run>, create one per query since it remembers the column positions of that query
+//   RunBinder    - INSERT_SQL/UPDATE_SQL for the table and bindInsert/bindUpdate to set their parameters
+@SupportedAnnotationTypes(RowMapperProcessor.TABLE)
+public class RowMapperProcessor extends AbstractProcessor {
+
+    static final String TABLE = "com.example.runningapp.mapping.Table";
+    static final String COLUMN = "com.example.runningapp.mapping.Column";
+    static final String COLUMNS = "com.example.runningapp.mapping.Columns";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element instanceof TypeElement type) {
+                    try {
+                        generate(type);
+                    } catch (IOException e) {
+                        error(type, "Could not write the row mapper for " + type + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        Map<String, String> table = values(type, TABLE);
+        String tableName = table.get("name");
+        String idColumn = table.get("id");
+
+        List<Property> properties = new ArrayList<>();
+        Property id = null;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            Property property = property(type, field);
+            if (property == null) {
+                return; // already reported
+            }
+            properties.add(property);
+            if (property.column.equals(idColumn)) {
+                id = property;
+            }
+        }
+        if (id == null) {
+            error(type, "@Table id column " + idColumn + " is not a field of " + type.getSimpleName());
+            return;
+        }
+
+        String pkg = ((PackageElement) type.getEnclosingElement()).getQualifiedName().toString();
+        String model = type.getSimpleName().toString();
+        writeRowMapper(type, pkg, model, properties);
+        writeBinder(type, pkg, model, tableName, id, properties);
+    }
+
+    private void writeRowMapper(TypeElement type, String pkg, String model, List<Property> properties) throws IOException {
+        String name = model + "RowMapper";
+        StringBuilder src = header(pkg);
+        src.append("// maps rows of ").append(model).append(" by column index, generated from the @Table annotation on ").append(model).append('\n');
+        src.append("// not thread-safe, use a new one for each query\n");
+        src.append(generated());
+        src.append("public final class ").append(name).append(" implements org.springframework.jdbc.core.RowMapper<").append(model).append("> {\n\n");
+
+        src.append("    public static final String COLUMNS = \"").append(join(properties, false)).append("\";\n\n");
+        src.append("    private static final String[] COLUMN_NAMES = { ");
+        for (int i = 0; i < properties.size(); i++) {
+            src.append(i > 0 ? ", " : "").append('"').append(properties.get(i).column).append('"');
+        }
+        src.append(" };\n\n");
+        src.append("    private java.sql.ResultSet indexed;\n");
+        src.append("    private int[] index;\n\n");
+
+        src.append("    @Override\n");
+        src.append("    public ").append(model).append(" mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {\n");
+        src.append("        if (rs != indexed) {\n");
+        src.append("            index = " + COLUMNS + ".resolve(rs, COLUMN_NAMES);\n");
+        src.append("            indexed = rs;\n");
+        src.append("        }\n");
+        src.append("        ").append(model).append(" row = new ").append(model).append("();\n");
+        src.append("        int c;\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property p = properties.get(i);
+            src.append("        if ((c = index[").append(i).append("]) != 0) {\n");
+            src.append("            row.").append(p.setter).append('(').append(p.kind.read("c")).append(");\n");
+            src.append("        }\n");
+        }
+        src.append("        return row;\n");
+        src.append("    }\n");
+        src.append("}\n");
+        write(type, pkg, name, src);
+    }
+
+    private void writeBinder(TypeElement type, String pkg, String model, String table, Property id,
+                             List<Property> properties) throws IOException {
+        String name = model + "Binder";
+        List<Property> inserted = new ArrayList<>();
+        List<Property> updated = new ArrayList<>();
+        for (Property p : properties) {
+            if (p != id && p.insertable) {
+                inserted.add(p);
+            }
+            if (p != id && p.updatable) {
+                updated.add(p);
+            }
+        }
+
+        StringBuilder src = header(pkg);
+        src.append("// the INSERT and UPDATE statements for ").append(table).append(" and the code to set their parameters from a ").append(model).append('\n');
+        src.append("// generated from the @Table annotation on ").append(model).append('\n');
+        src.append(generated());
+        src.append("public final class ").append(name).append(" {\n\n");
+
+        src.append("    public static final String INSERT_SQL = \"INSERT INTO ").append(table).append(" (")
+                .append(join(inserted, false)).append(") VALUES (").append(placeholders(inserted.size())).append(")\";\n\n");
+        src.append("    public static final int INSERT_PARAMS = ").append(inserted.size()).append(";\n\n");
+        src.append("    // ends with the id condition so a DAO can add more conditions with AND\n");
+        src.append("    public static final String UPDATE_SQL = \"UPDATE ").append(table).append(" SET ")
+                .append(join(updated, true)).append(" WHERE ").append(id.column).append(" = ?\";\n\n");
+        src.append("    public static final int UPDATE_PARAMS = ").append(updated.size() + 1).append(";\n\n");
+        src.append("    private ").append(name).append("() {}\n\n");
+
+        src.append("    public static void bindInsert(java.sql.PreparedStatement ps, ").append(model).append(" row) throws java.sql.SQLException {\n");
+        for (int i = 0; i < inserted.size(); i++) {
+            Property p = inserted.get(i);
+            src.append("        ").append(p.kind.write(String.valueOf(i + 1), "row." + p.getter + "()")).append(";\n");
+        }
+        src.append("    }\n\n");
+
+        src.append("    public static void bindUpdate(java.sql.PreparedStatement ps, ").append(model).append(" row) throws java.sql.SQLException {\n");
+        for (int i = 0; i < updated.size(); i++) {
+            Property p = updated.get(i);
+            src.append("        ").append(p.kind.write(String.valueOf(i + 1), "row." + p.getter + "()")).append(";\n");
+        }
+        src.append("        ").append(id.kind.write(String.valueOf(updated.size() + 1), "row." + id.getter + "()")).append(";\n");
+        src.append("    }\n");
+        src.append("}\n");
+        write(type, pkg, name, src);
+    }
+
+    // works out the column, getter, setter and JDBC type of a field
+    private Property property(TypeElement type, VariableElement field) {
+        String fieldName = field.getSimpleName().toString();
+        Map<String, String> column = values(field, COLUMN);
+        String columnName = column.getOrDefault("name", "");
+
+        Kind kind = Kind.of(field.asType().toString());
+        if (kind == null) {
+            error(field, "Unsupported column type " + field.asType() + " for " + type.getSimpleName() + "." + fieldName);
+            return null;
+        }
+        String codec = column.getOrDefault("codec", "NONE");
+        if (!codec.equals("NONE")) {
+            if (kind != Kind.INT) {
+                error(field, "Column codec " + codec + " needs an int field, " + type.getSimpleName() + "." + fieldName + " is " + field.asType());
+                return null;
+            }
+            kind = Kind.valueOf(codec);
+        }
+
+        // boolean fields named isX may have getIsX/setIsX or isX/setX accessors, both are used in the models
+        String bare = fieldName.startsWith("is") && fieldName.length() > 2 && Character.isUpperCase(fieldName.charAt(2))
+                ? fieldName.substring(2) : null;
+        String setter = findMethod(type, 1, "set" + capitalize(fieldName), bare != null ? "set" + bare : null);
+        String getter = findMethod(type, 0, "get" + capitalize(fieldName), "is" + capitalize(fieldName),
+                bare != null ? fieldName : null);
+        if (setter == null || getter == null) {
+            error(field, "No getter/setter found for " + type.getSimpleName() + "." + fieldName);
+            return null;
+        }
+
+        return new Property(columnName.isEmpty() ? fieldName : columnName, getter, setter, kind,
+                !"false".equals(column.get("insertable")), !"false".equals(column.get("updatable")));
+    }
+
+    private String findMethod(TypeElement type, int parameters, String... names) {
+        for (String name : names) {
+            if (name == null) {
+                continue;
+            }
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                        && method.getModifiers().contains(Modifier.PUBLIC)) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    // the explicitly set values of an annotation, as strings
+    private Map<String, String> values(Element element, String annotation) {
+        Map<String, String> values = new java.util.HashMap<>();
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(annotation)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : mirror.getElementValues().entrySet()) {
+                    values.put(e.getKey().getSimpleName().toString(), String.valueOf(e.getValue().getValue()));
+                }
+            }
+        }
+        return values;
+    }
+
+    private StringBuilder header(String pkg) {
+        return new StringBuilder("package ").append(pkg).append(";\n\n");
+    }
+
+    private String generated() {
+        return "@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")\n";
+    }
+
+    private void write(TypeElement type, String pkg, String name, StringBuilder src) throws IOException {
+        try (Writer out = processingEnv.getFiler().createSourceFile(pkg + "." + name, type).openWriter()) {
+            out.write(src.toString());
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static String join(List<Property> properties, boolean assignments) {
+        StringBuilder sb = new StringBuilder();
+        for (Property p : properties) {
+            sb.append(sb.length() > 0 ? ", " : "").append(p.column).append(assignments ? " = ?" : "");
+        }
+        return sb.toString();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", java.util.Collections.nCopies(count, "?"));
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    private record Property(String column, String getter, String setter, Kind kind, boolean insertable, boolean updatable) {}
+
+    // how each java type is read from a result set and set on a statement
+    private enum Kind {
+        INT("getInt", "setInt"),
+        LONG("getLong", "setLong"),
+        DOUBLE("getDouble", "setDouble"),
+        BOOLEAN("getBoolean", "setBoolean"),
+        STRING("getString", "setString"),
+        BIG_DECIMAL("getBigDecimal", "setBigDecimal"),
+        SQL_DATE("getDate", "setDate"),
+        SQL_TIME("getTime", "setTime"),
+        SQL_TIMESTAMP("getTimestamp", "setTimestamp"),
+        LOCAL_DATE(null, null),
+        INTEGER_OBJECT(null, null),
+        LONG_OBJECT(null, null),
+        // int fields with a Column.Codec, the names match the codec constants
+        EPOCH_DAY(null, null),
+        CENTIS(null, null);
+
+        private final String getter;
+        private final String setter;
+
+        Kind(String getter, String setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        static Kind of(String type) {
+            return switch (type) {
+                case "int" -> INT;
+                case "long" -> LONG;
+                case "double" -> DOUBLE;
+                case "boolean" -> BOOLEAN;
+                case "java.lang.String" -> STRING;
+                case "java.math.BigDecimal" -> BIG_DECIMAL;
+                case "java.sql.Date" -> SQL_DATE;
+                case "java.sql.Time" -> SQL_TIME;
+                case "java.sql.Timestamp" -> SQL_TIMESTAMP;
+                case "java.time.LocalDate" -> LOCAL_DATE;
+                case "java.lang.Integer" -> INTEGER_OBJECT;
+                case "java.lang.Long" -> LONG_OBJECT;
+                default -> null;
+            };
+        }
+
+        String read(String index) {
+            return switch (this) {
+                case LOCAL_DATE -> COLUMNS + ".getLocalDate(rs, " + index + ")";
+                case INTEGER_OBJECT -> COLUMNS + ".getInteger(rs, " + index + ")";
+                case LONG_OBJECT -> COLUMNS + ".getLong(rs, " + index + ")";
+                case EPOCH_DAY -> COLUMNS + ".getEpochDay(rs, " + index + ")";
+                case CENTIS -> COLUMNS + ".getCentis(rs, " + index + ")";
+                default -> "rs." + getter + "(" + index + ")";
+            };
+        }
+
+        String write(String index, String value) {
+            return switch (this) {
+                case LOCAL_DATE -> "ps.setDate(" + index + ", " + value + " != null ? java.sql.Date.valueOf(" + value + ") : null)";
+                case INTEGER_OBJECT -> "ps.setObject(" + index + ", " + value + ", java.sql.Types.INTEGER)";
+                case LONG_OBJECT -> "ps.setObject(" + index + ", " + value + ", java.sql.Types.BIGINT)";
+                case EPOCH_DAY -> COLUMNS + ".setEpochDay(ps, " + index + ", " + value + ")";
+                case CENTIS -> COLUMNS + ".setCentis(ps, " + index + ", " + value + ")";
+                default -> "ps." + setter + "(" + index + ", " + value + ")";
+            };
+        }
+    }
+}
@@ -7,7 +7,7 @@ import HelpTooltip from "../components/HelpTooltip";
 
 /**
  * displays the homepage with a chart of recent runs and goal progress
- * allows users to filter runs by unit and track distance toward selected goals
+ * allows users to pick the unit the chart is shown in and track distance toward selected goals
  */
 
 
@@ -15,30 +15,22 @@ import HelpTooltip from "../components/HelpTooltip";
 
 export default function Homepage() {
 	const [chartOptions, setChartOptions] = useState({});
-	const [recentRuns, setRecentRuns] = useState([]);
-	const [unitFilter, setUnitFilter] = useState("both");
+	const [summary, setSummary] = useState([]);
+	// null shows the chart in the user's preferred unit, km or miles converts every run into that unit
+	const [displayUnit, setDisplayUnit] = useState(null);
 	const [goals, setGoals] = useState([]);
 	const [selectedGoal, setSelectedGoal] = useState(null);
 
 	const user = JSON.parse(localStorage.getItem("user"));
 
+	// the totals are grouped per day on the server, so only one small row per day is downloaded
+	const summaryUrl = (unit) =>
+		`/api/runs/summary/${user.userID}?period=day` + (unit ? `&unit=${unit}` : "");
+
 	useEffect(() => {
-		// loads recent runs and user goals
+		// loads user goals
 		if (!user?.userID) return;
 
-		axios
-			.get(`/api/runs/recent/${user.userID}`)
-			.then((res) => {
-				const runs = Array.isArray(res.data.data) ? res.data.data : [];
-				const sortedRuns = runs.sort(
-					(a, b) => new Date(a.runDate) - new Date(b.runDate)
-				);
-				setRecentRuns(sortedRuns);
-			})
-			.catch((err) => {
-				console.error("Failed to load recent runs:", err);
-			});
-
 		axios
 			.get(`/api/goals/user/${user.userID}`)
 			.then((res) => {
@@ -52,32 +44,36 @@ export default function Homepage() {
 	}, [user?.userID]);
 
 	useEffect(() => {
-		// updates chart when runs or filter changes
-		if (recentRuns.length === 0) return;
+		// loads the daily totals for the chart whenever the display unit changes
+		if (!user?.userID) return;
 
-		let filtered = recentRuns;
+		axios
+			.get(summaryUrl(displayUnit))
+			.then((res) => {
+				setSummary(Array.isArray(res.data.data) ? res.data.data : []);
+			})
+			.catch((err) => {
+				console.error("Failed to load recent runs:", err);
+			});
+	}, [user?.userID, displayUnit]);
+
+	const hasRuns = summary.some((day) => day.runCount > 0);
 
-		if (unitFilter === "km") {
-			filtered = recentRuns.filter((run) => run.unit === "km");
-		} else if (unitFilter === "miles") {
-			filtered = recentRuns.filter((run) => run.unit === "miles");
-		}
+	useEffect(() => {
+		// updates chart when the daily totals change
+		if (!hasRuns) return;
 
-		const categories = filtered.map((run) =>
-			new Date(run.runDate).toLocaleDateString("en-GB", {
+		const categories = summary.map((day) =>
+			new Date(day.periodStart).toLocaleDateString("en-GB", {
 				weekday: "short",
 				day: "numeric",
 				month: "short",
 			})
 		);
 
-		const data = filtered.map((run) => parseFloat(run.runDistance));
-		const unitLabel =
-			unitFilter === "both"
-				? ""
-				: filtered[0]?.unit
-					? ` (${filtered[0].unit})`
-					: "";
+		// every run is counted, the server converts the totals into the unit it reports back
+		const data = summary.map((day) => parseFloat(day.totalDistance));
+		const unitLabel = summary[0]?.unit ? ` (${summary[0].unit})` : "";
 
 		const options = {
 			accessibility: { enabled: false },
@@ -89,13 +85,13 @@ export default function Homepage() {
 			},
 			yAxis: {
 				title: {
-					text: unitFilter === "both" ? "Distance" : `Distance${unitLabel}`,
+					text: `Distance${unitLabel}`,
 				},
 				allowDecimals: true,
 			},
 			series: [
 				{
-					name: unitFilter === "both" ? "Distance" : `Distance${unitLabel}`,
+					name: `Distance${unitLabel}`,
 					data,
 					color: "#001f3f",
 				},
@@ -103,25 +99,24 @@ export default function Homepage() {
 		};
 
 		setChartOptions(options);
-	}, [recentRuns, unitFilter]);
+	}, [summary, hasRuns]);
 
 	// calculates progress towards selected goal, linking to the screen navigation I created earlier
+	// progressMetres is kept up to date by the backend every time a run or the goal is saved
+	// the percentage is worked out in metres, so runs in either unit count, progressTotal is the same figure in the goal's unit
 	const calculateProgress = () => {
-		if (!selectedGoal || !selectedGoal.goalDistance || !selectedGoal.unit)
+		if (!selectedGoal || !selectedGoal.goalMetres || !selectedGoal.unit)
 			return null;
 
-		const totalDistance = recentRuns
-			.filter((run) => run.unit === selectedGoal.unit)
-			.reduce((sum, run) => sum + parseFloat(run.runDistance), 0);
-
+		const goalTotal = parseFloat(selectedGoal.progressTotal ?? 0);
 		const percentage = Math.min(
-			Math.round((totalDistance / selectedGoal.goalDistance) * 100),
+			Math.round(((selectedGoal.progressMetres ?? 0) / selectedGoal.goalMetres) * 100),
 			100
 		);
 
 		return {
 			percentage,
-			totalDistance: totalDistance.toFixed(2),
+			totalDistance: goalTotal.toFixed(2),
 		};
 	};
 
@@ -143,36 +138,36 @@ export default function Homepage() {
 						<div className="d-flex justify-content-between align-items-center mb-3">
 							<h5 className="mb-0 d-flex align-items-center gap-2">
 								Recent Run Summary
-								<HelpTooltip message="This chart summarizes your most recent runs. Use the dropdown to filter by unit." />
+								<HelpTooltip message="This chart summarizes all of your recent runs. Use the dropdown to choose the unit the distances are shown in, runs saved in the other unit are converted." />
 							</h5>
 							<Dropdown>
 								<Dropdown.Toggle
 									variant="primary"
 									size="sm"
-									id="unit-filter"
+									id="display-unit"
 									style={{ backgroundColor: "navy", borderColor: "navy" }}
 								>
-									{unitFilter === "km"
+									{displayUnit === "km"
 										? "Kilometers"
-										: unitFilter === "miles"
+										: displayUnit === "miles"
 											? "Miles"
-											: "Filter Chart"}
+											: "Show In"}
 								</Dropdown.Toggle>
 								<Dropdown.Menu>
-									<Dropdown.Item onClick={() => setUnitFilter("both")}>
-										All (km + miles)
+									<Dropdown.Item onClick={() => setDisplayUnit(null)}>
+										My Preferred Unit
 									</Dropdown.Item>
-									<Dropdown.Item onClick={() => setUnitFilter("km")}>
-										Kilometers Only
+									<Dropdown.Item onClick={() => setDisplayUnit("km")}>
+										Kilometers
 									</Dropdown.Item>
-									<Dropdown.Item onClick={() => setUnitFilter("miles")}>
-										Miles Only
+									<Dropdown.Item onClick={() => setDisplayUnit("miles")}>
+										Miles
 									</Dropdown.Item>
 								</Dropdown.Menu>
 							</Dropdown>
 						</div>
 
-						{recentRuns.length > 0 ? (
+						{hasRuns ? (
 							<HighchartsReact highcharts={Highcharts} options={chartOptions} />
 						) : (
 							<p className="text-muted">No runs recorded in the last 7 days.</p>
@@ -187,7 +182,7 @@ export default function Homepage() {
 							<div className="d-flex justify-content-between align-items-center mb-2">
 								<h6 className="mb-0 d-flex align-items-center gap-2">
 									Goal Progress
-									<HelpTooltip message="Progress is based on runs within the last 7 days." />
+									<HelpTooltip message="Progress counts every one of your runs up to the goal's target date, including runs saved before the goal was set." />
 								</h6>
 								<Dropdown>
 									<Dropdown.Toggle
@@ -212,7 +207,7 @@ export default function Homepage() {
 							</div>
 
 							{selectedGoal &&
-								selectedGoal.goalDistance &&
+								selectedGoal.goalMetres &&
 								selectedGoal.unit &&
 								progress ? (
 								<>
@@ -1,14 +1,23 @@
 package com.example.runningapp.controller;
 
 import com.example.runningapp.dao.GoalDao;
+import com.example.runningapp.model.CursorPage;
 import com.example.runningapp.model.Goal;
+import com.example.runningapp.model.GoalProgress;
 import com.example.runningapp.model.ApiResponse;
+import com.example.runningapp.util.CursorCodec;
+import com.example.runningapp.util.FieldSelection;
+import com.example.runningapp.util.UserDataVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Map;
 
 //this is the REST controller for handling goal-related API endpoints
 
@@ -16,21 +25,58 @@ import java.util.List;
 @RequestMapping("/api/goals")
 public class GoalAPI {
 
+    // the fields the goal lists accept in ?fields=, JSON name -> column
+    // progressTotal is worked out from progressMetres in the goal's unit, so it needs both columns
+    private static final Map<String, String> GOAL_FIELDS = Map.of(
+            "goalID", "goalID", "userID", "userID", "goalName", "goalName", "goalDistance", "goalDistance", "goalMetres", "goalMetres",
+            "goalFrequency", "goalFrequency", "targetDate", "targetDate", "unit", "unit",
+            "isDeleted", "isDeleted", "progressTotal", "progressMetres, unit");
+
+    // a user's goal list may be kept by the browser but has to be checked against the ETag every time
+    private static final CacheControl USER_LIST_CACHE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private GoalDao goalDao;
 
+    @Autowired
+    private UserDataVersions userDataVersions;
+
  // this endpoint returns all non-deleted goals
+    // the list endpoints take an optional ?fields=a,b,c, only those columns are read and only those fields sent back
     @GetMapping
-    public ResponseEntity<ApiResponse> getAllGoals() {
-        List<Goal> goals = goalDao.getAllGoals();
-        return ResponseEntity.ok(new ApiResponse(true, "All goals retrieved", goals));
+    public ResponseEntity<ApiResponse> getAllGoals(@RequestParam(required = false) String fields) {
+        FieldSelection selection = selectGoalFields(fields);
+        List<Goal> goals = goalDao.getAllGoals(columns(selection));
+        return ResponseEntity.ok(new ApiResponse(true, "All goals retrieved", project(selection, goals)));
     }
 
  // this endpoint returns all non-deleted goals for a specific user
+    // passing cursor and/or limit returns a single page with a nextCursor for the following page
+    // the response has an ETag from the user's data version, a matching If-None-Match gets an empty 304 without a query
     @GetMapping("/user/{userId}")
-    public ResponseEntity<ApiResponse> getGoalsByUserId(@PathVariable int userId) {
-        List<Goal> goals = goalDao.getGoalsByUserId(userId);
-        return ResponseEntity.ok(new ApiResponse(true, "Goals retrieved for user", goals));
+    public ResponseEntity<ApiResponse> getGoalsByUserId(@PathVariable int userId,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        @RequestParam(required = false) String fields,
+                                                        WebRequest request) {
+        String etag = userDataVersions.etag("goals", userId, cursor + "|" + limit + "|" + fields);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(USER_LIST_CACHE).build();
+        }
+        FieldSelection selection = selectGoalFields(fields);
+        if (cursor == null && limit == null) {
+            List<Goal> goals = goalDao.getGoalsByUserId(userId, columns(selection));
+            return ResponseEntity.ok().eTag(etag).cacheControl(USER_LIST_CACHE)
+                    .body(new ApiResponse(true, "Goals retrieved for user", project(selection, goals)));
+        }
+
+        try {
+            CursorPage<Goal> page = goalDao.getGoalsByUserIdPage(userId, cursor, CursorCodec.clampLimit(limit), columns(selection));
+            return ResponseEntity.ok().eTag(etag).cacheControl(USER_LIST_CACHE)
+                    .body(new ApiResponse(true, "Goals retrieved for user", project(selection, page)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid cursor", null));
+        }
     }
 
  // this endpoint creates a new goal, with validation checks
@@ -118,6 +164,21 @@ public class GoalAPI {
         }
     }
 
+
+ // this endpoint returns the progress made towards a distance goal
+    // the total is kept up to date whenever runs are written, so this is a single lookup by ID
+    // the comparison is done in metres, only the values sent back are in the goal's unit
+    @GetMapping("/{id}/progress")
+    public ResponseEntity<ApiResponse> getGoalProgress(@PathVariable int id) {
+        Goal goal = goalDao.getGoalById(id);
+        if (goal.getGoalMetres() == null || goal.getGoalMetres() <= 0) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "This goal has no distance set", null));
+        }
+
+        int percentage = (int) Math.min(100, Math.round(goal.getProgressMetres() * 100.0 / goal.getGoalMetres()));
+        GoalProgress progress = new GoalProgress(id, goal.getGoalDistance(), goal.getProgressTotal(), goal.getUnit(), percentage);
+        return ResponseEntity.ok(new ApiResponse(true, "Goal progress retrieved", progress));
+    }
     
  // this endpoint restores a previously soft-deleted goal
     @PutMapping("/{id}/restore")
@@ -133,8 +194,27 @@ public class GoalAPI {
 
  // this endpoint returns all soft-deleted goals for a specific user
     @GetMapping("/deleted/{userId}")
-    public ResponseEntity<ApiResponse> getDeletedGoals(@PathVariable int userId) {
-        List<Goal> goals = goalDao.getDeletedGoalsByUserId(userId);
-        return ResponseEntity.ok(new ApiResponse(true, "Deleted goals retrieved", goals));
+    public ResponseEntity<ApiResponse> getDeletedGoals(@PathVariable int userId,
+                                                       @RequestParam(required = false) String fields) {
+        FieldSelection selection = selectGoalFields(fields);
+        List<Goal> goals = goalDao.getDeletedGoalsByUserId(userId, columns(selection));
+        return ResponseEntity.ok(new ApiResponse(true, "Deleted goals retrieved", project(selection, goals)));
+    }
+
+    // goalID is always read since the page cursor is made from it
+    private FieldSelection selectGoalFields(String fields) {
+        return FieldSelection.parse(fields, GOAL_FIELDS, "goalID");
+    }
+
+    private static String columns(FieldSelection selection) {
+        return selection == null ? "*" : selection.getColumns();
+    }
+
+    private Object project(FieldSelection selection, List<Goal> goals) {
+        return selection == null ? goals : selection.project(goals);
+    }
+
+    private Object project(FieldSelection selection, CursorPage<Goal> page) {
+        return selection == null ? page : selection.project(page);
     }
 }
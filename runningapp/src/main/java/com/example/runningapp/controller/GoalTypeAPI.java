@@ -4,9 +4,13 @@ import com.example.runningapp.dao.GoalTypeDao;
 import com.example.runningapp.model.GoalType;
 import com.example.runningapp.model.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -16,17 +20,26 @@ public class GoalTypeAPI {
     @Autowired
     private GoalTypeDao goalTypeDao;
 
+    // how long browsers and proxies may reuse a goal types response before checking the ETag again
+    private static final CacheControl CATALOGUE_CACHE = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+
+    // the catalogue is served from memory with an ETag, a matching If-None-Match gets an empty 304
     @GetMapping
-    public ResponseEntity<ApiResponse> getAllGoalTypes() {
+    public ResponseEntity<ApiResponse> getAllGoalTypes(WebRequest request) {
+        String etag = goalTypeDao.getCatalogueEtag();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CATALOGUE_CACHE).build();
+        }
         List<GoalType> list = goalTypeDao.getAllGoalTypes();
-        return ResponseEntity.ok(new ApiResponse(true, "Goal types retrieved", list));
+        return ResponseEntity.ok().eTag(etag).cacheControl(CATALOGUE_CACHE)
+                .body(new ApiResponse(true, "Goal types retrieved", list));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse> getGoalType(@PathVariable int id) {
         try {
             GoalType g = goalTypeDao.getGoalTypeById(id);
-            return ResponseEntity.ok(new ApiResponse(true, "Goal type found", g));
+            return ResponseEntity.ok().cacheControl(CATALOGUE_CACHE).body(new ApiResponse(true, "Goal type found", g));
         } catch (Exception e) {
             return ResponseEntity.status(404).body(new ApiResponse(false, "Goal type not found", null));
         }
@@ -0,0 +1,38 @@
+package com.example.runningapp.controller;
+
+import com.example.runningapp.model.ApiResponse;
+import com.example.runningapp.util.QueryLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// this class serves what the query log has recorded, newest first
+// the lists are empty unless runningapp.query-log.enabled=true
+@RestController
+@RequestMapping("/api/diagnostics")
+public class QueryLogAPI {
+
+    @Autowired
+    private QueryLog queryLog;
+
+ // this endpoint returns the recent slow statements with their EXPLAIN plans, optionally only those containing some text
+    @GetMapping("/slow-queries")
+    public ResponseEntity<ApiResponse> getSlowQueries(@RequestParam(required = false) String contains,
+                                                      @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(new ApiResponse(true, "Slow queries retrieved", queryLog.getSlowQueries(contains, limit)));
+    }
+
+ // this endpoint returns the recent requests that ran statements against the same rows more than once
+    @GetMapping("/repeated-queries")
+    public ResponseEntity<ApiResponse> getRepeatedQueries(@RequestParam(required = false) String contains,
+                                                          @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(new ApiResponse(true, "Repeated queries retrieved", queryLog.getRepeatedQueries(contains, limit)));
+    }
+
+ // this endpoint returns the totals per query shape, sorted by total, max, count or errors
+    @GetMapping("/query-stats")
+    public ResponseEntity<ApiResponse> getQueryStats(@RequestParam(defaultValue = "total") String sort,
+                                                     @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(new ApiResponse(true, "Query stats retrieved", queryLog.getQueryStats(sort, limit)));
+    }
+}
@@ -1,13 +1,53 @@
 package com.example.runningapp.controller;
 
 import com.example.runningapp.dao.RunDao;
+import com.example.runningapp.dao.RunSampleDao;
+import com.example.runningapp.dao.UserDao;
+import com.example.runningapp.model.CursorPage;
 import com.example.runningapp.model.Run;
+import com.example.runningapp.model.RunAnalytics;
+import com.example.runningapp.model.RunBatchResult;
+import com.example.runningapp.model.RunSamples;
+import com.example.runningapp.model.RunSummary;
+import com.example.runningapp.model.User;
 import com.example.runningapp.model.ApiResponse;
+import com.example.runningapp.util.CursorCodec;
+import com.example.runningapp.util.FieldSelection;
+import com.example.runningapp.util.GpxParser;
+import com.example.runningapp.util.RunExportWriter;
+import com.example.runningapp.util.RunHotTier;
+import com.example.runningapp.util.RunSnapshot;
+import com.example.runningapp.util.RunSnapshotExporter;
+import com.example.runningapp.util.SampleCodec;
+import com.example.runningapp.util.UnitConverter;
+import com.example.runningapp.util.UserDataVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 //this is the REST controller for handling run-related API endpoints
 
@@ -16,14 +56,83 @@ import java.util.List;
 @RequestMapping("/api/runs")
 public class RunAPI {
 
+    // the longest date range the summary endpoint will group over (about 10 years)
+    private static final long MAX_SUMMARY_DAYS = 3660;
+    // the most distance buckets the analytics overview will count
+    private static final int MAX_DISTANCE_BUCKETS = 1000;
+
+    // the most runs accepted by one bulk import request
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    // the most samples stored for one run (a day at one per second)
+    private static final int MAX_SAMPLES = 86400;
+    // the sample ranges that fit the codec's ints with room to spare, a run of 1000 km and a pace of a day per km
+    // a stopped runner is sent as pace 0, a device reporting infinity or NaN gets a 400 rather than a made up value
+    private static final double MAX_SAMPLE_DISTANCE_METRES = 1_000_000;
+    private static final double MAX_SAMPLE_PACE_SECONDS = 86_400;
+
+    // the fields the run lists accept in ?fields=, JSON name -> column
+    private static final Map<String, String> RUN_FIELDS = Map.of(
+            "runID", "runID", "userID", "userID", "runDate", "runDate", "runDistance", "runDistance",
+            "runDuration", "durationSeconds", "runSpeed", "runSpeed", "unit", "unit",
+            "additionalDetails", "additionalDetails", "isDeleted", "isDeleted", "distanceMetres", "distanceMetres");
+
+    // a user's run lists may be kept by the browser but have to be checked against the ETag every time
+    private static final CacheControl USER_LIST_CACHE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private RunDao runDao;
 
+    // the recent runs and totals are answered from the in-memory copy of the user's runs
+    @Autowired
+    private RunHotTier runHotTier;
+
+    // the global analytics endpoints read the snapshot it keeps instead of the runs table
+    @Autowired
+    private RunSnapshotExporter runSnapshotExporter;
+
+    @Autowired
+    private RunSampleDao runSampleDao;
+
+    @Autowired
+    @Qualifier("gpxImportExecutor")
+    private ThreadPoolTaskExecutor gpxImportExecutor;
+
+    @Autowired
+    private UserDataVersions userDataVersions;
+
+    // the summary and totals are sent in the user's unit unless another one is asked for
+    @Autowired
+    private UserDao userDao;
+
  // this endpoint retrieves all non-deleted runs
+    // the list endpoints take an optional ?fields=a,b,c, only those columns are read and only those fields sent back
     @GetMapping
-    public ResponseEntity<ApiResponse> getAllRuns() {
-        List<Run> runs = runDao.getAllRuns();
-        return ResponseEntity.ok(new ApiResponse(true, "All runs retrieved", runs));
+    public ResponseEntity<ApiResponse> getAllRuns(@RequestParam(required = false) String fields) {
+        FieldSelection selection = selectRunFields(fields);
+        List<Run> runs = runDao.getAllRuns(columns(selection));
+        return ResponseEntity.ok(new ApiResponse(true, "All runs retrieved", project(selection, runs)));
+    }
+
+ // this endpoint exports runs as NDJSON (one run per line) or CSV, for one user or the whole table
+    // rows are written to the response as they are read, so large exports don't have to fit in memory
+    @GetMapping("/export")
+    public ResponseEntity<?> exportRuns(@RequestParam(defaultValue = "ndjson") String format,
+                                        @RequestParam(required = false) Integer userId) {
+        if (!format.equals("ndjson") && !format.equals("csv")) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Format must be ndjson or csv", null));
+        }
+
+        StreamingResponseBody body = out -> {
+            RunExportWriter writer = new RunExportWriter(out, format);
+            runDao.streamRuns(userId, writer);
+            writer.finish();
+        };
+        MediaType type = format.equals("csv") ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson");
+        return ResponseEntity.ok()
+                .contentType(type)
+                .header("Content-Disposition", "attachment; filename=\"runs." + format + "\"")
+                .body(body);
     }
 
  // this endpoint retrieves a specific run by its ID
@@ -37,21 +146,218 @@ public class RunAPI {
         }
     }
 
+ // this endpoint saves the per-second samples of a run, replacing any saved before
+    // they are stored as one compressed blob rather than a row per sample
+    @PutMapping("/{id}/samples")
+    public ResponseEntity<ApiResponse> saveSamples(@PathVariable int id, @RequestBody RunSamples samples) {
+        int[] elapsed = samples.getElapsedSeconds();
+        double[] distance = samples.getDistanceMetres();
+        double[] pace = samples.getPaceSecondsPerKm();
+        if (elapsed == null || distance == null || pace == null
+                || elapsed.length != distance.length || elapsed.length != pace.length) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "elapsedSeconds, distanceMetres and paceSecondsPerKm must have the same length", null));
+        }
+        if (elapsed.length == 0 || elapsed.length > MAX_SAMPLES) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Between 1 and " + MAX_SAMPLES + " samples can be saved", null));
+        }
+
+        for (int i = 0; i < elapsed.length; i++) {
+            if (elapsed[i] < 0) {
+                return ResponseEntity.badRequest().body(new ApiResponse(false, "elapsedSeconds[" + i + "] can't be negative", null));
+            }
+            // written so NaN fails the check as well
+            if (!(distance[i] >= 0 && distance[i] <= MAX_SAMPLE_DISTANCE_METRES)) {
+                return ResponseEntity.badRequest().body(new ApiResponse(false,
+                        "distanceMetres[" + i + "] must be between 0 and " + (long) MAX_SAMPLE_DISTANCE_METRES, null));
+            }
+            if (!(pace[i] >= 0 && pace[i] <= MAX_SAMPLE_PACE_SECONDS)) {
+                return ResponseEntity.badRequest().body(new ApiResponse(false,
+                        "paceSecondsPerKm[" + i + "] must be between 0 and " + (long) MAX_SAMPLE_PACE_SECONDS + " (0 while stopped)", null));
+            }
+        }
+
+        runDao.getRunById(id); // throws if the run doesn't exist, which is turned into a 404
+
+        // distance is kept to 0.1 m and pace to 0.1 s/km so they fit in ints (the ranges are checked above)
+        int[] distanceDm = new int[distance.length];
+        int[] paceDs = new int[pace.length];
+        for (int i = 0; i < elapsed.length; i++) {
+            distanceDm[i] = (int) Math.round(distance[i] * 10);
+            paceDs[i] = (int) Math.round(pace[i] * 10);
+        }
+        byte[] data = SampleCodec.encode(elapsed, distanceDm, paceDs);
+        runSampleDao.saveSamples(id, elapsed.length, data);
+        return ResponseEntity.ok(new ApiResponse(true, "Samples saved (" + data.length + " bytes)", null));
+    }
+
+ // this endpoint returns the samples of a run, maxPoints thins them out evenly for charts
+    // the blob is decoded one sample at a time and only the samples that are kept are copied out
+    @GetMapping("/{id}/samples")
+    public ResponseEntity<ApiResponse> getSamples(@PathVariable int id, @RequestParam(required = false) Integer maxPoints) {
+        byte[] data = runSampleDao.getSamples(id);
+        if (data == null) {
+            return ResponseEntity.status(404).body(new ApiResponse(false, "No samples saved for run " + id, null));
+        }
+        if (maxPoints != null && maxPoints < 2) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "maxPoints must be at least 2", null));
+        }
+
+        SampleCodec.Decoder decoder = new SampleCodec.Decoder(data);
+        int count = decoder.getCount();
+        int step = maxPoints == null || count <= maxPoints ? 1 : (int) Math.ceil((count - 1) / (double) (maxPoints - 1));
+        int kept = (count - 1) / step + 1 + ((count - 1) % step == 0 ? 0 : 1); // every step-th sample plus the last one
+
+        int[] elapsed = new int[kept];
+        double[] distance = new double[kept];
+        double[] pace = new double[kept];
+        int out = 0;
+        for (int i = 0; decoder.hasNext(); i++) {
+            decoder.next();
+            if (i % step == 0 || i == count - 1) {
+                elapsed[out] = decoder.getElapsedSeconds();
+                distance[out] = decoder.getDistanceDecimetres() / 10.0;
+                pace[out] = decoder.getPaceDecisecondsPerKm() / 10.0;
+                out++;
+            }
+        }
+        return ResponseEntity.ok(new ApiResponse(true, "Samples retrieved", new RunSamples(id, elapsed, distance, pace)));
+    }
+
  // this endpoint creates a new run with basic validation 
     @PostMapping
     public ResponseEntity<ApiResponse> createRun(@RequestBody Run run) {
-        if (run.getRunDate() == null || run.getRunDistance() == null || run.getRunDuration() == null) {
-            return ResponseEntity.badRequest().body(new ApiResponse(false, "Run date, distance, and duration are required", null));
+        String error = validateRun(run);
+        if (error != null) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, error, null));
         }
         int result = runDao.addRun(run);
         return ResponseEntity.ok(new ApiResponse(result > 0, result > 0 ? "Run added successfully" : "Failed to add run", run));
     }
 
+ // this endpoint imports many runs in one request, e.g. a whole season at once
+    // each run is validated like createRun, invalid ones are reported back by position and the rest are inserted together
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse> createRuns(@RequestBody List<Run> runs) {
+        if (runs == null || runs.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "At least one run is required", null));
+        }
+        if (runs.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "A maximum of " + MAX_BATCH_SIZE + " runs can be imported at once", null));
+        }
+
+        RunBatchResult batchResult = new RunBatchResult();
+        List<Run> validRuns = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i++) {
+            String error = validateRun(runs.get(i));
+            if (error != null) {
+                batchResult.getErrors().add(new RunBatchResult.RowError(i, error));
+            } else {
+                validRuns.add(runs.get(i));
+            }
+        }
+
+        if (!validRuns.isEmpty()) {
+            try {
+                runDao.addRuns(validRuns);
+            } catch (DataIntegrityViolationException e) {
+                // the whole batch is rolled back, most likely an invalid user ID
+                return ResponseEntity.status(400).body(new ApiResponse(false, "Error importing runs. Please check the user ID and input values.", batchResult));
+            }
+            for (Run run : validRuns) {
+                batchResult.getRunIDs().add(run.getRunID());
+            }
+        }
+
+        String message = validRuns.size() + " runs imported, " + batchResult.getErrors().size() + " rejected";
+        return ResponseEntity.ok(new ApiResponse(!validRuns.isEmpty(), message, batchResult));
+    }
+
+ // this endpoint creates runs from GPX files recorded on a watch or phone, one run per file
+    // files are parsed in parallel on the gpx import pool, then all the runs are inserted in one batch
+    // files that can't be read are reported back by their position in the upload
+    @PostMapping("/import/gpx")
+    public ResponseEntity<ApiResponse> importGpx(@RequestParam int userId,
+                                                 @RequestParam(defaultValue = "km") String unit,
+                                                 @RequestParam("files") List<MultipartFile> files) {
+        if (!unit.equals("km") && !unit.equals("miles")) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Unit must be km or miles", null));
+        }
+        if (files.isEmpty() || files.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Between 1 and " + MAX_BATCH_SIZE + " files can be imported at once", null));
+        }
+
+        List<CompletableFuture<Run>> parsed = new ArrayList<>();
+        for (MultipartFile file : files) {
+            parsed.add(CompletableFuture.supplyAsync(() -> {
+                try (InputStream in = file.getInputStream()) {
+                    return toRun(GpxParser.parse(in), userId, unit, file.getOriginalFilename());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, gpxImportExecutor));
+        }
+
+        RunBatchResult batchResult = new RunBatchResult();
+        List<Run> validRuns = new ArrayList<>();
+        for (int i = 0; i < parsed.size(); i++) {
+            try {
+                validRuns.add(parsed.get(i).join());
+            } catch (CompletionException e) {
+                String reason = e.getCause() instanceof IllegalArgumentException ? e.getCause().getMessage() : "Could not read file";
+                batchResult.getErrors().add(new RunBatchResult.RowError(i, reason));
+            }
+        }
+
+        if (!validRuns.isEmpty()) {
+            try {
+                runDao.addRuns(validRuns);
+            } catch (DataIntegrityViolationException e) {
+                return ResponseEntity.status(400).body(new ApiResponse(false, "Error importing runs. Please check the user ID.", batchResult));
+            }
+            for (Run run : validRuns) {
+                batchResult.getRunIDs().add(run.getRunID());
+            }
+        }
+
+        String message = validRuns.size() + " runs imported, " + batchResult.getErrors().size() + " rejected";
+        return ResponseEntity.ok(new ApiResponse(!validRuns.isEmpty(), message, batchResult));
+    }
+
+    // turns the totals of a GPX track into a run in the chosen unit
+    private Run toRun(GpxParser.GpxTrack track, int userId, String unit, String fileName) {
+        BigDecimal distance = BigDecimal.valueOf(track.getDistanceMetres())
+                .divide(UnitConverter.metresPer(unit), 2, RoundingMode.HALF_UP);
+        if (distance.signum() <= 0) {
+            throw new IllegalArgumentException("GPX track is too short to import");
+        }
+
+        Run run = new Run();
+        run.setUserID(userId);
+        run.setRunDate(track.getStartTime().atZone(ZoneId.systemDefault()).toLocalDate());
+        run.setRunDistance(distance);
+        run.setDurationSeconds((int) track.getMovingSeconds());
+        run.setRunSpeed(distance.multiply(BigDecimal.valueOf(3600))
+                .divide(BigDecimal.valueOf(track.getMovingSeconds()), 2, RoundingMode.HALF_UP));
+        run.setUnit(unit);
+        String name = track.getName() != null && !track.getName().isEmpty() ? track.getName() : fileName;
+        run.setAdditionalDetails("Imported from GPX" + (name != null ? ": " + name : ""));
+        return run;
+    }
+
+    // basic validation shared by the create, update and import endpoints, returns null when the run is valid
+    private String validateRun(Run run) {
+        if (run == null || run.getRunDate() == null || run.getRunDistance() == null || run.getRunDuration() == null) {
+            return "Run date, distance, and duration are required";
+        }
+        return null;
+    }
+
  // this endpoint updates an existing run using its ID, with basic validation
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse> updateRun(@PathVariable int id, @RequestBody Run run) {
-        if (run.getRunDate() == null || run.getRunDistance() == null || run.getRunDuration() == null) {
-            return ResponseEntity.badRequest().body(new ApiResponse(false, "Run date, distance, and duration are required", null));
+        String error = validateRun(run);
+        if (error != null) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, error, null));
         }
 
         try {
@@ -60,10 +366,17 @@ public class RunAPI {
                 return ResponseEntity.status(404).body(new ApiResponse(false, "Run with ID " + id + " not found", null));
             }
 
+            // a run can't be given to another user, that user's sync could never tell the old owner it has gone
+            if (existingRun.getUserID() != run.getUserID()) {
+                return ResponseEntity.badRequest().body(new ApiResponse(false, "A run can't be moved to another user", null));
+            }
+
             run.setRunID(id); // make sure the run ID is set
             int result = runDao.updateRun(run);
             return ResponseEntity.ok(new ApiResponse(result > 0, "Run updated successfully", run));
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage(), null));
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
             return ResponseEntity.status(404).body(new ApiResponse(false, "Run with ID " + id + " not found", null));
         } catch (Exception e) {
@@ -86,28 +399,240 @@ public class RunAPI {
     }
 
  // this endpoint retrieves all soft-deleted runs for a specific user
+    // passing cursor and/or limit returns a single page instead of the whole list
     @GetMapping("/deleted/{userId}")
-    public ResponseEntity<ApiResponse> getDeletedRuns(@PathVariable int userId) {
-        List<Run> deletedRuns = runDao.getDeletedRunsByUser(userId);
-        return ResponseEntity.ok(new ApiResponse(true, "Deleted runs retrieved", deletedRuns));
+    public ResponseEntity<ApiResponse> getDeletedRuns(@PathVariable int userId,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer limit,
+                                                      @RequestParam(required = false) String fields) {
+        FieldSelection selection = selectRunFields(fields);
+        if (cursor == null && limit == null) {
+            List<Run> deletedRuns = runDao.getDeletedRunsByUser(userId, columns(selection));
+            return ResponseEntity.ok(new ApiResponse(true, "Deleted runs retrieved", project(selection, deletedRuns)));
+        }
+
+        try {
+            CursorPage<Run> page = runDao.getDeletedRunsByUserPage(userId, cursor, CursorCodec.clampLimit(limit), columns(selection));
+            return ResponseEntity.ok(new ApiResponse(true, "Deleted runs retrieved", project(selection, page)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid cursor", null));
+        }
     }
 
  // this endpoint retrieves runs from the last 7 days for a specific user
     // going to use this for the graph creation
+    // the ETag also changes with the day since the 7 days move on even when no runs are written
+    // without fields the runs come from the hot tier (RunHotTier), only a field selection is read from the database
     @GetMapping("/recent/{userId}")
-    public ResponseEntity<ApiResponse> getRecentRuns(@PathVariable int userId) {
-        List<Run> recentRuns = runDao.getRecentRuns(userId);
-        return ResponseEntity.ok(new ApiResponse(true, "Recent runs retrieved", recentRuns));
+    public ResponseEntity<ApiResponse> getRecentRuns(@PathVariable int userId,
+                                                     @RequestParam(required = false) String fields,
+                                                     WebRequest request) {
+        String etag = userDataVersions.etag("recent", userId, LocalDate.now() + "|" + fields);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(USER_LIST_CACHE).build();
+        }
+        FieldSelection selection = selectRunFields(fields);
+        Object recentRuns = selection == null
+                ? runHotTier.getRecentRuns(userId)
+                : project(selection, runDao.getRecentRuns(userId, columns(selection)));
+        return ResponseEntity.ok().eTag(etag).cacheControl(USER_LIST_CACHE)
+                .body(new ApiResponse(true, "Recent runs retrieved", recentRuns));
     }
     
+ // this endpoint returns chart-ready totals per day, week or month for a user
+    // from/to default to the last 7 days, gap periods are included with zero totals
+    // km and miles runs are all counted, the distances are sent in unit (the user's unit preference when not given)
+    @GetMapping("/summary/{userId}")
+    public ResponseEntity<ApiResponse> getRunSummary(@PathVariable int userId,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                     @RequestParam(defaultValue = "day") String period,
+                                                     @RequestParam(required = false) String unit) {
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = to.minusDays(7);
+        }
+
+        // validation of the range, period and unit before anything is sent to the database
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) > MAX_SUMMARY_DAYS) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid date range", null));
+        }
+        if (!period.equals("day") && !period.equals("week") && !period.equals("month")) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Period must be day, week or month", null));
+        }
+        if (unit != null && !unit.equals("km") && !unit.equals("miles")) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Unit must be km or miles", null));
+        }
+
+        List<RunSummary> summary = runDao.getRunSummary(userId, from, to, period);
+        String displayUnit = unitFor(userId, unit);
+        summary.forEach(s -> inUnit(s, displayUnit));
+        return ResponseEntity.ok(new ApiResponse(true, "Run summary retrieved", summary));
+    }
+
+ // this endpoint returns the total distance, duration and run count for a date range
+    // added up from the user's runs in the hot tier (RunHotTier), or the daily rollup for users it doesn't hold,
+    // so km and miles runs are both counted and converted into the requested unit
+    // (the user's unit preference when not given)
+    @GetMapping("/totals/{userId}")
+    public ResponseEntity<ApiResponse> getRunTotals(@PathVariable int userId,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                    @RequestParam(required = false) String unit) {
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = to.minusDays(7);
+        }
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid date range", null));
+        }
+        if (unit != null && !unit.equals("km") && !unit.equals("miles")) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Unit must be km or miles", null));
+        }
+
+        long[] totals = runHotTier.getTotals(userId, from, to);
+        RunSummary summary = new RunSummary(from, totals[0], totals[1], (int) totals[2]);
+        inUnit(summary, unitFor(userId, unit));
+        return ResponseEntity.ok(new ApiResponse(true, "Run totals retrieved", summary));
+    }
+
+ // this endpoint returns the hit, load and eviction counts of the run hot tier, size is the number of users held
+    @GetMapping("/hot-tier-stats")
+    public ResponseEntity<ApiResponse> getHotTierStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "Run hot tier stats retrieved", runHotTier.getStats()));
+    }
+
+ // this endpoint returns the distance, duration and run count of every user's runs per day
+    // read from the analytics snapshot (RunSnapshotExporter) rather than the runs table, so the figures are as of
+    // the last export (snapshotTakenAt in the overview), the distances are in unit (km when not given)
+    @GetMapping("/analytics/daily")
+    public ResponseEntity<ApiResponse> getDailyAnalytics(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                         @RequestParam(defaultValue = "km") String unit) {
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = to.minusDays(7);
+        }
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) > MAX_SUMMARY_DAYS) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid date range", null));
+        }
+        if (!unit.equals("km") && !unit.equals("miles")) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Unit must be km or miles", null));
+        }
+        RunSnapshot snapshot = runSnapshotExporter.getSnapshot();
+        if (snapshot == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ApiResponse(false, "Analytics snapshot not ready", null));
+        }
+
+        List<RunSummary> daily = snapshot.dailyTotals(from, to);
+        daily.forEach(s -> inUnit(s, unit));
+        return ResponseEntity.ok(new ApiResponse(true, "Daily analytics retrieved", daily));
+    }
+
+ // this endpoint returns the number of active users, the totals and the distance distribution of every user's runs
+    // between two dates, from the analytics snapshot like /analytics/daily
+    // the distribution has buckets of bucketMetres, the last one also counting every longer run
+    @GetMapping("/analytics/overview")
+    public ResponseEntity<ApiResponse> getAnalyticsOverview(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            @RequestParam(defaultValue = "km") String unit,
+                                                            @RequestParam(defaultValue = "1000") int bucketMetres,
+                                                            @RequestParam(defaultValue = "50") int buckets) {
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = to.minusDays(30);
+        }
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid date range", null));
+        }
+        if (!unit.equals("km") && !unit.equals("miles")) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Unit must be km or miles", null));
+        }
+        if (bucketMetres < 1 || buckets < 1 || buckets > MAX_DISTANCE_BUCKETS) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid distance buckets", null));
+        }
+        RunSnapshot snapshot = runSnapshotExporter.getSnapshot();
+        if (snapshot == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ApiResponse(false, "Analytics snapshot not ready", null));
+        }
+
+        RunAnalytics analytics = snapshot.overview(from, to, bucketMetres, buckets);
+        inUnit(analytics.getTotals(), unit);
+        return ResponseEntity.ok(new ApiResponse(true, "Analytics overview retrieved", analytics));
+    }
+
+    // the unit asked for, otherwise the user's preference (km if the user has none or doesn't exist)
+    private String unitFor(int userId, String unit) {
+        if (unit != null) {
+            return unit;
+        }
+        User user = userDao.getUserById(userId);
+        return user != null && "miles".equals(user.getUnitPreference()) ? "miles" : "km";
+    }
+
+    // fills in the distance and average speed of a summary in the given unit, this is the only place they are converted
+    private static void inUnit(RunSummary summary, String unit) {
+        BigDecimal distance = UnitConverter.fromMetres(summary.getTotalDistanceMetres(), unit);
+        long seconds = summary.getTotalDurationSeconds();
+        summary.setUnit(unit);
+        summary.setTotalDistance(distance);
+        summary.setAverageSpeed(seconds > 0
+                ? distance.multiply(BigDecimal.valueOf(3600)).divide(BigDecimal.valueOf(seconds), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO);
+    }
+
  // this endpoint retrieves all non-deleted runs for a specific user
+    // passing cursor and/or limit returns a single page (newest first) with a nextCursor for the following page
+    // the response has an ETag from the user's data version, a matching If-None-Match gets an empty 304 without a query
     @GetMapping("/user/{userId}")
-    public ResponseEntity<ApiResponse> getRunsByUser(@PathVariable int userId) {
+    public ResponseEntity<ApiResponse> getRunsByUser(@PathVariable int userId,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     @RequestParam(required = false) String fields,
+                                                     WebRequest request) {
+        String etag = userDataVersions.etag("runs", userId, cursor + "|" + limit + "|" + fields);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(USER_LIST_CACHE).build();
+        }
+        FieldSelection selection = selectRunFields(fields);
         try {
-            List<Run> runs = runDao.getRunsByUserId(userId);
-            return ResponseEntity.ok(new ApiResponse(true, "Runs for user retrieved", runs));
+            if (cursor == null && limit == null) {
+                List<Run> runs = runDao.getRunsByUserId(userId, columns(selection));
+                return ResponseEntity.ok().eTag(etag).cacheControl(USER_LIST_CACHE)
+                        .body(new ApiResponse(true, "Runs for user retrieved", project(selection, runs)));
+            }
+            CursorPage<Run> page = runDao.getRunsByUserIdPage(userId, cursor, CursorCodec.clampLimit(limit), columns(selection));
+            return ResponseEntity.ok().eTag(etag).cacheControl(USER_LIST_CACHE)
+                    .body(new ApiResponse(true, "Runs for user retrieved", project(selection, page)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Invalid cursor", null));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(new ApiResponse(false, "Error retrieving runs: " + e.getMessage(), null));
         }
     }
+
+    // runID and runDate are always read since the page cursor is made from them
+    private FieldSelection selectRunFields(String fields) {
+        return FieldSelection.parse(fields, RUN_FIELDS, "runID", "runDate");
+    }
+
+    private static String columns(FieldSelection selection) {
+        return selection == null ? "*" : selection.getColumns();
+    }
+
+    private Object project(FieldSelection selection, List<Run> runs) {
+        return selection == null ? runs : selection.project(runs);
+    }
+
+    private Object project(FieldSelection selection, CursorPage<Run> page) {
+        return selection == null ? page : selection.project(page);
+    }
 }
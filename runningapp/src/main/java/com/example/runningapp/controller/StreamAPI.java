@@ -0,0 +1,41 @@
+package com.example.runningapp.controller;
+
+import com.example.runningapp.util.UserChangeStream;
+import com.example.runningapp.util.UserDataVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+//this is the REST controller for the server-sent event streams of run and goal changes
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/stream")
+public class StreamAPI {
+
+    @Autowired
+    private UserChangeStream userChangeStream;
+
+    @Autowired
+    private UserDataVersions userDataVersions;
+
+ // this endpoint keeps a connection open and pushes an event whenever the user's runs or goals change
+    // events are named run.created, run.updated, run.deleted, run.restored and the same for goal, with the run or goal
+    // ID and the new data version as data, e.g. {"type":"run.updated","id":12,"version":1760000000000123}
+    // a bulk import sends one run.imported with id 0 instead of a run.created per run, the client reloads its runs
+    // (the metres backfill sends run.imported and goal.imported the same way)
+    // a run event also means goal progress may have changed
+    @GetMapping(path = "/user/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamUserChanges(@PathVariable int userId) {
+        SseEmitter emitter = userChangeStream.subscribe(userId, userDataVersions.current(userId));
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        // stops proxies such as nginx from buffering the events
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).header("X-Accel-Buffering", "no").body(emitter);
+    }
+}
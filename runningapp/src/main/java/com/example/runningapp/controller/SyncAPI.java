@@ -0,0 +1,40 @@
+package com.example.runningapp.controller;
+
+import com.example.runningapp.dao.SyncDao;
+import com.example.runningapp.model.ApiResponse;
+import com.example.runningapp.model.SyncChanges;
+import com.example.runningapp.util.CursorCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+//this is the REST controller for clients that keep their own copy of a user's runs and goals
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/sync")
+public class SyncAPI {
+
+    @Autowired
+    private SyncDao syncDao;
+
+ // this endpoint returns the runs and goals changed after the since watermark (0 for everything)
+    // the client stores next from the response and sends it as since next time, while more is true it asks again straight away
+    // limit is per list and defaults to the page size
+    @GetMapping("/{userId}")
+    public ResponseEntity<ApiResponse> sync(@PathVariable int userId,
+                                            @RequestParam(defaultValue = "0") long since,
+                                            @RequestParam(required = false) Integer limit) {
+        if (since < 0) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "since can't be negative", null));
+        }
+        SyncChanges changes = syncDao.getChanges(userId, since, CursorCodec.clampLimit(limit));
+        // a watermark from before the database was reset, the client has to start again from 0
+        if (changes.getNext() < since) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse(false, "Watermark is ahead of the server, sync again from 0", null));
+        }
+        return ResponseEntity.ok(new ApiResponse(true, "Changes retrieved", changes));
+    }
+}
@@ -1,17 +1,23 @@
 package com.example.runningapp.controller;
 
 import com.example.runningapp.dao.UserDao;
+import com.example.runningapp.exception.HashingBusyException;
 import com.example.runningapp.model.User;
 import com.example.runningapp.model.ApiResponse;
 import com.example.runningapp.model.LoginRequest;
+import com.example.runningapp.util.FieldSelection;
+import com.example.runningapp.util.PasswordHasher;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 //this is the REST controller for handling user-related API endpoints
 
@@ -20,18 +26,42 @@ import java.util.List;
 @RequestMapping("/api/users")
 public class UserAPI {
 
+    // the fields the user list accepts in ?fields=, JSON name -> column
+    // the password hash is deliberately not on it
+    private static final Map<String, String> USER_FIELDS = Map.of(
+            "userID", "userID", "username", "username", "name", "name",
+            "unitPreference", "unitPreference", "deleted", "isDeleted");
+
     @Autowired
     private UserDao userDao;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
+
+    // what runs after a hash is done (the database writes and the response) is handed back to the async request
+    // executor, so the hashing pool's threads only ever run bcrypt and the 429 limit counts only hashing work
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor requestExecutor;
 
  // this endpoint retrieves all non-deleted users,
     // done to test on postman as well alongside MYSQL from the userDAO
+    // an optional ?fields=a,b,c reads and returns only those fields
     @GetMapping
-    public ResponseEntity<ApiResponse> getAllUsers() {
-        List<User> users = userDao.getAllUsers();
-        return ResponseEntity.ok(new ApiResponse(true, "All users retrieved", users));
+    public ResponseEntity<ApiResponse> getAllUsers(@RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, USER_FIELDS, "userID");
+        if (selection == null) {
+            List<User> users = userDao.getAllUsers();
+            return ResponseEntity.ok(new ApiResponse(true, "All users retrieved", users));
+        }
+        List<User> users = userDao.getAllUsers(selection.getColumns());
+        return ResponseEntity.ok(new ApiResponse(true, "All users retrieved", selection.project(users)));
+    }
+
+ // this endpoint returns the hit, miss and eviction counts of the user cache
+    @GetMapping("/cache-stats")
+    public ResponseEntity<ApiResponse> getCacheStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "User cache stats retrieved", userDao.getCacheStats()));
     }
 
  // this endpoint retrieves a specific user by their ID
@@ -46,59 +76,65 @@ public class UserAPI {
     }
 
  // this endpoint creates a new user account, basic validation of username and password 
+    // the password is hashed on the hashing pool, so this request thread is freed while bcrypt runs
+    // the insert and the response then run on the request executor
     @PostMapping
-    public ResponseEntity<ApiResponse> createUser(@RequestBody User user) {
+    public CompletableFuture<ResponseEntity<ApiResponse>> createUser(@RequestBody User user) {
         if (user.getUsername() == null || user.getPassword() == null) {
-            return ResponseEntity.badRequest().body(
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
                 new ApiResponse(false, "Username and password are required", null)
-            );
+            ));
         }
 
-        try {
-        	 // hash the password before storing it
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
-
-            int result = userDao.addUser(user);
-            if (result > 0) {
-                return ResponseEntity.ok(new ApiResponse(true, "User created successfully", user));
-            } else {
-                return ResponseEntity.status(500).body(new ApiResponse(false, "Failed to create user", null));
+        // hash the password before storing it
+        return passwordHasher.encode(user.getPassword()).thenApplyAsync(hash -> {
+            try {
+                user.setPassword(hash);
+
+                int result = userDao.addUser(user);
+                if (result > 0) {
+                    return ResponseEntity.ok(new ApiResponse(true, "User created successfully", user));
+                } else {
+                    return ResponseEntity.status(500).body(new ApiResponse(false, "Failed to create user", null));
+                }
+            } catch (DuplicateKeyException e) {
+            	// incase another account already has this username
+                return ResponseEntity.status(400).body(new ApiResponse(false, "Username already exists. Please choose a different username.", null));
+            } catch (Exception e) {
+                return ResponseEntity.status(500).body(new ApiResponse(false, "Internal server error: " + e.getMessage(), null));
             }
-        } catch (DuplicateKeyException e) {
-        	// incase another account already has this username
-            return ResponseEntity.status(400).body(new ApiResponse(false, "Username already exists. Please choose a different username.", null));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(new ApiResponse(false, "Internal server error: " + e.getMessage(), null));
-        }
+        }, requestExecutor);
     }
 
  // this endpoint updates an existing user's info using their ID
     @PutMapping("/{id}")
-    public ResponseEntity<ApiResponse> updateUser(@PathVariable int id, @RequestBody User user) {
+    public CompletableFuture<ResponseEntity<ApiResponse>> updateUser(@PathVariable int id, @RequestBody User user) {
         if (user.getUsername() == null || user.getPassword() == null) {
-            return ResponseEntity.badRequest().body(new ApiResponse(false, "Username and password are required", null));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new ApiResponse(false, "Username and password are required", null)));
         }
 
-        try {
-            User existingUser = userDao.getUserById(id);
-            if (existingUser == null) {
-                return ResponseEntity.status(404).body(new ApiResponse(false, "User with ID " + id + " not found", null));
-            }
-
-         // hash the updated password before saving
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
-            user.setUserID(id); // and ensure the correct ID is linked
-
-            int result = userDao.updateUser(user);
-            return ResponseEntity.ok(new ApiResponse(result > 0, "User updated successfully", user));
+        User existingUser = userDao.getUserById(id);
+        if (existingUser == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(404).body(new ApiResponse(false, "User with ID " + id + " not found", null)));
+        }
 
-        } catch (Exception e) {
-            String errorMessage = e.getMessage();
-            if (errorMessage != null && errorMessage.contains("Duplicate entry") && errorMessage.contains("username")) {
-                return ResponseEntity.status(400).body(new ApiResponse(false, "Error updating user: duplicate username. Please change the username and try again.", null));
+        // hash the updated password before saving
+        return passwordHasher.encode(user.getPassword()).thenApplyAsync(hash -> {
+            try {
+                user.setPassword(hash);
+                user.setUserID(id); // and ensure the correct ID is linked
+
+                int result = userDao.updateUser(user);
+                return ResponseEntity.ok(new ApiResponse(result > 0, "User updated successfully", user));
+
+            } catch (Exception e) {
+                String errorMessage = e.getMessage();
+                if (errorMessage != null && errorMessage.contains("Duplicate entry") && errorMessage.contains("username")) {
+                    return ResponseEntity.status(400).body(new ApiResponse(false, "Error updating user: duplicate username. Please change the username and try again.", null));
+                }
+                return ResponseEntity.status(500).body(new ApiResponse(false, "Error updating user: " + errorMessage, null));
             }
-            return ResponseEntity.status(500).body(new ApiResponse(false, "Error updating user: " + errorMessage, null));
-        }
+        }, requestExecutor);
     }
 
  // this endpoint soft-deletes a user, probably wont end up using since there is no admin 
@@ -110,16 +146,16 @@ public class UserAPI {
     
  // this endpoint handles user login using a username and password
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse> login(@RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<ApiResponse>> login(@RequestBody LoginRequest loginRequest) {
         String username = loginRequest.getUsername();
         String rawPassword = loginRequest.getPassword();
 
         //ensure that both username and password are entered
         // rawpassword since it is the non-hashed password the user enters
         if (username == null || rawPassword == null) {
-            return ResponseEntity.badRequest().body(
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
                 new ApiResponse(false, "Username and password are required", null)
-            );
+            ));
         }
 
         // check if user exists
@@ -127,22 +163,50 @@ public class UserAPI {
 
         if (user == null) {
         	System.out.println("LOGIN ERROR: Username does not exist");
-            return ResponseEntity.status(401).body(new ApiResponse(false, "Invalid credentials, ensure the user exists", null));
+            return CompletableFuture.completedFuture(ResponseEntity.status(401).body(new ApiResponse(false, "Invalid credentials, ensure the user exists", null)));
         }
 
-     // check if password matches the hashed one in the database
-        boolean passwordMatches = passwordEncoder.matches(rawPassword, user.getPassword());
+     // check if password matches the hashed one in the database, done on the hashing pool
+        return passwordHasher.matches(rawPassword, user.getPassword()).thenApplyAsync(passwordMatches -> {
+            if (!passwordMatches) {
+            	System.out.println("LOGIN ERROR: Password mismatch");
+                return ResponseEntity.status(401).body(new ApiResponse(false, "Invalid credentials, password doesn't match", null));
+            }
 
-        if (!passwordMatches) {
-        	System.out.println("LOGIN ERROR: Password mismatch");
-            return ResponseEntity.status(401).body(new ApiResponse(false, "Invalid credentials, password doesn't match", null));
-        }
+            rehashIfNeeded(user, rawPassword);
+
+            // better for security like this
+            // the hashed password is not part of the user object, 
+            // instead null is sent back in the API response. 
+            user.setPassword(null);
 
-        // better for security like this
-        // the hashed password is not part of the user object, 
-        // instead null is sent back in the API response. 
-        user.setPassword(null);
+            return ResponseEntity.ok(new ApiResponse(true, "Login successful", user));
+        }, requestExecutor);
+    }
+
+    // if the stored hash was made with an older (or newer) bcrypt cost, it is replaced now that the plain password is known
+    // this runs in the background so the login response isn't held up, if the pool is busy it is tried again next login
+    // the UPDATE is done on the request executor like the other writes after a hash
+    private void rehashIfNeeded(User user, String rawPassword) {
+        String oldHash = user.getPassword();
+        if (!passwordHasher.needsRehash(oldHash)) {
+            return;
+        }
+        try {
+            passwordHasher.encode(rawPassword)
+                    .thenAcceptAsync(newHash -> userDao.updatePasswordHash(user.getUserID(), oldHash, newHash), requestExecutor)
+                    .exceptionally(e -> {
+                        System.out.println("REHASH ERROR: " + e.getMessage());
+                        return null;
+                    });
+        } catch (HashingBusyException e) {
+            // skipped, the old hash still works
+        }
+    }
 
-        return ResponseEntity.ok(new ApiResponse(true, "Login successful", user));
+ // this endpoint returns the queue depth, rejections and hash times of the password hashing pool
+    @GetMapping("/hashing-stats")
+    public ResponseEntity<ApiResponse> getHashingStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "Password hashing stats retrieved", passwordHasher.getStats()));
     }
 }
@@ -1,11 +1,21 @@
 package com.example.runningapp.dao;
 
+import com.example.runningapp.model.CursorPage;
 import com.example.runningapp.model.Goal;
+import com.example.runningapp.model.GoalBinder;
+import com.example.runningapp.model.GoalRowMapper;
+import com.example.runningapp.util.CursorCodec;
+import com.example.runningapp.util.UnitConverter;
+import com.example.runningapp.util.UserDataVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.*;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.sql.*;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
 import java.util.List;
 
 //this is the DAO class for connecting goal details to the MYSQL database
@@ -15,88 +25,156 @@ public class GoalDao {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    // every write bumps the version of the user who owns the goal
+    @Autowired
+    private UserDataVersions userDataVersions;
+
+    // every write stamps the goal with the next number of the owner's change sequence, taken before the goal is locked
+    @Autowired
+    private SyncDao syncDao;
+
+    // goals are given the user's existing runs when they are created, edited or restored
+    @Autowired
+    private RunGoalDao runGoalDao;
+
  // this method retrieves all non-deleted goals from the database
     public List<Goal> getAllGoals() {
-        String sql = "SELECT * FROM goals WHERE isDeleted = false";
-        return jdbcTemplate.query(sql, new GoalMapper());
+        return getAllGoals("*");
+    }
+
+    // the list methods that take columns only select those (from FieldSelection), the other fields are left unset
+    public List<Goal> getAllGoals(String columns) {
+        String sql = "SELECT " + columns + " FROM goals WHERE isDeleted = false";
+        return jdbcTemplate.query(sql, new GoalRowMapper());
     }
 
  // this method retrieves all non-deleted goals for a specific user
     public List<Goal> getGoalsByUserId(int userId) {
-        String sql = "SELECT * FROM goals WHERE userID = ? AND isDeleted = false";
-        return jdbcTemplate.query(sql, new GoalMapper(), userId);
+        return getGoalsByUserId(userId, "*");
+    }
+
+    public List<Goal> getGoalsByUserId(int userId, String columns) {
+        String sql = "SELECT " + columns + " FROM goals WHERE userID = ? AND isDeleted = false";
+        return jdbcTemplate.query(sql, new GoalRowMapper(), userId);
+    }
+
+ // this method retrieves one page of non-deleted goals for a specific user, oldest first
+    // keyset on goalID, which idx_goal_user already carries since InnoDB secondary indexes include the PK
+    public CursorPage<Goal> getGoalsByUserIdPage(int userId, String cursor, int limit) {
+        return getGoalsByUserIdPage(userId, cursor, limit, "*");
+    }
+
+    // columns must include goalID, the next cursor is made from it
+    public CursorPage<Goal> getGoalsByUserIdPage(int userId, String cursor, int limit, String columns) {
+        int afterId = cursor == null ? 0 : CursorCodec.decodeId(cursor);
+        // one extra row is fetched to tell if there is a next page
+        String sql = "SELECT " + columns + " FROM goals WHERE userID = ? AND isDeleted = false AND goalID > ? ORDER BY goalID LIMIT ?";
+        List<Goal> goals = jdbcTemplate.query(sql, new GoalRowMapper(), userId, afterId, limit + 1);
+
+        String nextCursor = null;
+        if (goals.size() > limit) {
+            goals = goals.subList(0, limit);
+            nextCursor = CursorCodec.encodeIdCursor(goals.get(limit - 1).getGoalID());
+        }
+        return new CursorPage<>(goals, nextCursor, limit);
     }
 
  // this method adds a new goal to the database
+    // the user's existing runs are counted towards it straight away
+    @Transactional
     public int addGoal(Goal goal) {
-        String sql = "INSERT INTO goals (userID, goalName, goalDistance, goalFrequency, targetDate, unit, isDeleted) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
+        goal.setChangeSeq(syncDao.nextSequence(goal.getUserID()));
+        setGoalMetres(goal);
+        // the generated goalID is read back so the created event (and the caller) can refer to the goal
+        KeyHolder keyHolder = new GeneratedKeyHolder();
      // sets values from the goal object into the SQL insert statement
-        return jdbcTemplate.update(sql,
-            goal.getUserID(),
-            goal.getGoalName(),
-            goal.getGoalDistance(),
-            goal.getGoalFrequency(),
-            goal.getTargetDate(),
-            goal.getUnit(),
-            goal.getIsDeleted()
-        );
+        int result = jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(GoalBinder.INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            GoalBinder.bindInsert(ps, goal);
+            return ps;
+        }, keyHolder);
+        if (keyHolder.getKey() != null) {
+            goal.setGoalID(keyHolder.getKey().intValue());
+        }
+        if (result > 0) {
+            runGoalDao.recomputeGoal(goal.getGoalID(), goal.getChangeSeq());
+        }
+        userDataVersions.bump(goal.getUserID(), "goal.created", goal.getGoalID());
+        return result;
     }
 
  // this method updates an existing goal in the database
+    // progress is kept in metres, so changing the unit only changes how the goal is shown
+    // a new target date or distance changes which runs count, so the contributions are worked out again
+    @Transactional
     public int updateGoal(Goal goal) {
-        String sql = "UPDATE goals SET goalName=?, goalDistance=?, goalFrequency=?, targetDate=?, unit=?, isDeleted=? WHERE goalID=? AND userID=?";
-        return jdbcTemplate.update(sql,
-            goal.getGoalName(),
-            goal.getGoalDistance(),
-            goal.getGoalFrequency(),
-            goal.getTargetDate(),
-            goal.getUnit(),
-            goal.getIsDeleted(),
-            goal.getGoalID(),
-            goal.getUserID()
-        );
+        goal.setChangeSeq(syncDao.nextSequence(goal.getUserID()));
+        setGoalMetres(goal);
+        // the userID condition stops a goal being changed through another user's ID
+        String sql = GoalBinder.UPDATE_SQL + " AND userID = ?";
+        int result = jdbcTemplate.update(sql, ps -> {
+            GoalBinder.bindUpdate(ps, goal);
+            ps.setInt(GoalBinder.UPDATE_PARAMS + 1, goal.getUserID());
+        });
+
+        if (result > 0) {
+            runGoalDao.recomputeGoal(goal.getGoalID(), goal.getChangeSeq());
+            userDataVersions.bump(goal.getUserID(), "goal.updated", goal.getGoalID());
+        }
+        return result;
     }
 
  // this method soft-deletes a goal, meaning it won't show up but still exists in the database
+    // (clients that sync get it as a tombstone)
+    @Transactional
     public int softDeleteGoal(int goalId) {
-        String sql = "UPDATE goals SET isDeleted = true WHERE goalID = ?";
-        return jdbcTemplate.update(sql, goalId);
+        return setDeleted(goalId, true, "goal.deleted");
     }
 
  // this method restores a previously soft-deleted goal
+    // runs written while it was deleted weren't attributed to it, so its contributions are worked out again
+    @Transactional
     public int restoreGoal(int goalId) {
-        String sql = "UPDATE goals SET isDeleted = false WHERE goalID = ?";
-        return jdbcTemplate.update(sql, goalId);
+        return setDeleted(goalId, false, "goal.restored");
+    }
+
+    // goals are compared with runs in metres, so goalMetres is worked out from goalDistance and unit on every write
+    private static void setGoalMetres(Goal goal) {
+        goal.setGoalMetres(goal.getGoalDistance() == null ? null
+                : Math.toIntExact(UnitConverter.toMetres(goal.getGoalDistance(), goal.getUnit())));
+    }
+
+    // delete and restore only have the goal's ID, so the owner is looked up by primary key first
+    private int setDeleted(int goalId, boolean deleted, String change) {
+        List<Integer> owner = jdbcTemplate.queryForList("SELECT userID FROM goals WHERE goalID = ?", Integer.class, goalId);
+        if (owner.isEmpty()) {
+            return 0;
+        }
+        long seq = syncDao.nextSequence(owner.get(0));
+        String sql = "UPDATE goals SET isDeleted = ?, changeSeq = ? WHERE goalID = ?";
+        int result = jdbcTemplate.update(sql, deleted, seq, goalId);
+        if (result > 0 && !deleted) {
+            runGoalDao.recomputeGoal(goalId, seq);
+        }
+        if (result > 0) {
+            userDataVersions.bump(owner.get(0), change, goalId);
+        }
+        return result;
     }
 
     // this method retrieves a goal by its ID
     public Goal getGoalById(int goalId) {
         String sql = "SELECT * FROM goals WHERE goalID = ?";
-        return jdbcTemplate.queryForObject(sql, new GoalMapper(), goalId);
+        return jdbcTemplate.queryForObject(sql, new GoalRowMapper(), goalId);
     }
 
  // this method retrieves all soft-deleted goals for a specific user
     public List<Goal> getDeletedGoalsByUserId(int userId) {
-        String sql = "SELECT * FROM goals WHERE userID = ? AND isDeleted = true";
-        return jdbcTemplate.query(sql, new GoalMapper(), userId);
+        return getDeletedGoalsByUserId(userId, "*");
     }
 
- // this helper class maps each row from the result set to a Goal object
-    private static class GoalMapper implements RowMapper<Goal> {
-        @Override
-        public Goal mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Goal goal = new Goal(); // create a new goal object
-            goal.setGoalID(rs.getInt("goalID"));
-            goal.setUserID(rs.getInt("userID"));
-            goal.setGoalName(rs.getString("goalName"));
-            goal.setGoalDistance(rs.getBigDecimal("goalDistance"));
-            goal.setGoalFrequency(rs.getString("goalFrequency")); // handle nulls
-            goal.setTargetDate(rs.getDate("targetDate") != null ? rs.getDate("targetDate").toLocalDate() : null);
-            goal.setUnit(rs.getString("unit"));
-            goal.setIsDeleted(rs.getBoolean("isDeleted"));
-            return goal; // return the populated goal object
-        }
+    public List<Goal> getDeletedGoalsByUserId(int userId, String columns) {
+        String sql = "SELECT " + columns + " FROM goals WHERE userID = ? AND isDeleted = true";
+        return jdbcTemplate.query(sql, new GoalRowMapper(), userId);
     }
 }
@@ -1,42 +1,63 @@
 package com.example.runningapp.dao;
 
 import com.example.runningapp.model.GoalType;
+import com.example.runningapp.model.GoalTypeBinder;
+import com.example.runningapp.model.GoalTypeRowMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.*;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 
+//this is the DAO class for the goal types catalogue
+// the table is tiny and rarely changes, so the whole of it is kept in memory as a read-only snapshot
+// reads never touch the database, every write reloads the table and swaps in a new snapshot in one step
 @Repository
 public class GoalTypeDao {
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    // null until the first read, replaced (never changed) after every write
+    private volatile Snapshot snapshot;
+
+    // the goal types in the snapshot are shared, callers must not modify them
     public List<GoalType> getAllGoalTypes() {
-        String sql = "SELECT * FROM GoalTypes";
-        return jdbcTemplate.query(sql, new GoalTypeMapper());
+        return currentSnapshot().goalTypes;
     }
 
     public GoalType getGoalTypeById(int id) {
-        String sql = "SELECT * FROM GoalTypes WHERE goalTypeID = ?";
-        return jdbcTemplate.queryForObject(sql, new GoalTypeMapper(), id);
+        GoalType goalType = currentSnapshot().byId.get(id);
+        if (goalType == null) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        return goalType;
+    }
+
+    // a strong ETag for the current catalogue, it changes whenever any goal type does
+    public String getCatalogueEtag() {
+        return currentSnapshot().etag;
     }
 
-    public int addGoalType(GoalType goalType) {
+    // writes are synchronized so the snapshots are swapped in the same order the writes happened
+    public synchronized int addGoalType(GoalType goalType) {
         System.out.println("INSERTING: " + goalType.getDistance() + ", " + goalType.getFrequency() + ", " + goalType.getPace());
 
-        String sql = "INSERT INTO goaltypes (distance, frequency, pace) VALUES (?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         int result = jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setDouble(1, goalType.getDistance());
-            ps.setString(2, goalType.getFrequency());
-            ps.setString(3, goalType.getPace());
+            PreparedStatement ps = connection.prepareStatement(GoalTypeBinder.INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            GoalTypeBinder.bindInsert(ps, goalType);
             return ps;
         }, keyHolder);
 
@@ -44,33 +65,70 @@ public class GoalTypeDao {
             goalType.setGoalTypeID(keyHolder.getKey().intValue());
         }
 
+        reload();
         return result;
     }
 
 
-    public int updateGoalType(GoalType goalType) {
-        String sql = "UPDATE GoalTypes SET distance = ?, frequency = ?, pace = ? WHERE goalTypeID = ?";
-        return jdbcTemplate.update(sql,
-                goalType.getDistance(),
-                goalType.getFrequency(),
-                goalType.getPace(),
-                goalType.getGoalTypeID());
+    public synchronized int updateGoalType(GoalType goalType) {
+        int result = jdbcTemplate.update(GoalTypeBinder.UPDATE_SQL, ps -> GoalTypeBinder.bindUpdate(ps, goalType));
+        reload();
+        return result;
     }
 
-    public int deleteGoalType(int id) {
+    public synchronized int deleteGoalType(int id) {
         String sql = "DELETE FROM GoalTypes WHERE goalTypeID = ?";
-        return jdbcTemplate.update(sql, id);
+        int result = jdbcTemplate.update(sql, id);
+        reload();
+        return result;
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    // reads the whole table and swaps it in, only called while holding the lock
+    // if the read fails the snapshot is left empty, so the next request tries again instead of seeing old data
+    private void reload() {
+        snapshot = null;
+        String sql = "SELECT * FROM GoalTypes ORDER BY goalTypeID";
+        snapshot = new Snapshot(jdbcTemplate.query(sql, new GoalTypeRowMapper()));
     }
 
-    private static class GoalTypeMapper implements RowMapper<GoalType> {
-        @Override
-        public GoalType mapRow(ResultSet rs, int rowNum) throws SQLException {
-            GoalType g = new GoalType();
-            g.setGoalTypeID(rs.getInt("goalTypeID"));
-            g.setDistance(rs.getDouble("distance"));
-            g.setFrequency(rs.getString("frequency"));
-            g.setPace(rs.getString("pace"));
-            return g;
+    // one read-only copy of the catalogue, with a lookup by ID and an ETag made from its contents
+    private static final class Snapshot {
+        private final List<GoalType> goalTypes;
+        private final Map<Integer, GoalType> byId;
+        private final String etag;
+
+        private Snapshot(List<GoalType> goalTypes) {
+            this.goalTypes = List.copyOf(goalTypes);
+            Map<Integer, GoalType> map = new HashMap<>();
+            MessageDigest digest = sha256();
+            for (GoalType g : goalTypes) {
+                map.put(g.getGoalTypeID(), g);
+                String row = g.getGoalTypeID() + "|" + g.getDistance() + "|" + g.getFrequency() + "|" + g.getPace() + "\n";
+                digest.update(row.getBytes(StandardCharsets.UTF_8));
+            }
+            this.byId = Map.copyOf(map);
+            this.etag = "\"gt-" + HexFormat.of().formatHex(digest.digest(), 0, 12) + "\"";
+        }
+
+        private static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
         }
     }
 }
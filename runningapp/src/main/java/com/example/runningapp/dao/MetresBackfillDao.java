@@ -0,0 +1,81 @@
+package com.example.runningapp.dao;
+
+import com.example.runningapp.util.UnitConverter;
+import com.example.runningapp.util.UserDataVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+//this is the DAO class that fills in the metres columns (runs.distanceMetres, goals.goalMetres) of rows written
+// before the columns existed, RunDao and GoalDao set them on every write since
+// rows are done in ranges of IDs, each range in its own transaction, and rows that already have a value are skipped,
+// so it can run while the app is in use and be started again if it stops part way
+// like any other write, every user with rows in a range takes the next number of their sync sequence and the rows are
+// stamped with it, and the user's data version is bumped after the commit, so ETags, cached runs and sync clients
+// see the new values
+
+@Repository
+public class MetresBackfillDao {
+
+	// number of IDs updated per transaction
+    private static final int BATCH_SIZE = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SyncDao syncDao;
+
+    @Autowired
+    private UserDataVersions userDataVersions;
+
+ // this method fills in distanceMetres for every run that doesn't have it yet, returns the number of runs updated
+    // ROUND of the exact DECIMAL product rounds half up, the same as UnitConverter
+    public long backfillRuns() {
+        String usersSql = "SELECT DISTINCT userID FROM runs WHERE runID BETWEEN ? AND ? AND distanceMetres = 0 ORDER BY userID";
+        String sql = "UPDATE runs r JOIN sync_sequences s ON s.userID = r.userID " +
+                     "SET r.distanceMetres = ROUND(r.runDistance * CASE WHEN r.unit = 'miles' THEN ? ELSE ? END), r.changeSeq = s.lastSeq " +
+                     "WHERE r.runID BETWEEN ? AND ? AND r.distanceMetres = 0";
+        return backfill("SELECT COALESCE(MAX(runID), 0) FROM runs", usersSql, sql, "run.imported");
+    }
+
+ // this method fills in goalMetres for every goal with a distance that doesn't have it yet
+    public long backfillGoals() {
+        String usersSql = "SELECT DISTINCT userID FROM goals WHERE goalID BETWEEN ? AND ? " +
+                          "AND goalMetres IS NULL AND goalDistance IS NOT NULL ORDER BY userID";
+        String sql = "UPDATE goals g JOIN sync_sequences s ON s.userID = g.userID " +
+                     "SET g.goalMetres = ROUND(g.goalDistance * CASE WHEN g.unit = 'miles' THEN ? ELSE ? END), g.changeSeq = s.lastSeq " +
+                     "WHERE g.goalID BETWEEN ? AND ? AND g.goalMetres IS NULL AND g.goalDistance IS NOT NULL";
+        return backfill("SELECT COALESCE(MAX(goalID), 0) FROM goals", usersSql, sql, "goal.imported");
+    }
+
+    // each range reserves one sequence number per user in user ID order before any row is locked, like every other
+    // write. The update then stamps each row with its user's lastSeq, which is the number just reserved since the
+    // sync_sequences row stays locked until the commit
+    private long backfill(String maxIdSql, String usersSql, String updateSql, String change) {
+        Integer maxId = jdbcTemplate.queryForObject(maxIdSql, Integer.class);
+        long updated = 0;
+        for (int start = 1; start <= maxId; start += BATCH_SIZE) {
+            int from = start;
+            int to = start + BATCH_SIZE - 1;
+            updated += transactionTemplate.execute(status -> {
+                List<Integer> users = jdbcTemplate.queryForList(usersSql, Integer.class, from, to);
+                if (users.isEmpty()) {
+                    return 0;
+                }
+                for (int userId : users) {
+                    syncDao.nextSequence(userId);
+                    userDataVersions.bump(userId, change, 0);
+                }
+                return jdbcTemplate.update(updateSql, UnitConverter.METRES_PER_MILE, UnitConverter.METRES_PER_KM, from, to);
+            });
+        }
+        return updated;
+    }
+}
@@ -1,14 +1,30 @@
 package com.example.runningapp.dao;
 
+import com.example.runningapp.mapping.Columns;
+import com.example.runningapp.model.CursorPage;
 import com.example.runningapp.model.Run;
+import com.example.runningapp.model.RunBinder;
+import com.example.runningapp.model.RunRowMapper;
+import com.example.runningapp.model.RunSummary;
+import com.example.runningapp.util.CursorCodec;
+import com.example.runningapp.util.UnitConverter;
+import com.example.runningapp.util.UserDataVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.*;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 //this is the DAO class for connecting run details to the MYSQL database
 
@@ -18,37 +34,51 @@ public class RunDao {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private RunRollupDao runRollupDao;
+
+    @Autowired
+    private RunGoalDao runGoalDao;
+
+    // every write bumps the version of the user whose runs (and so goal progress) changed
+    @Autowired
+    private UserDataVersions userDataVersions;
+
+    // every write stamps the runs (and goals) it changes with the next number of the user's change sequence
+    @Autowired
+    private SyncDao syncDao;
+
  // this method is where all non-deleted runs are retrieved from the database
     public List<Run> getAllRuns() {
-        String sql = "SELECT * FROM runs WHERE isDeleted = false";
-        return jdbcTemplate.query(sql, new RunMapper());
+        return getAllRuns("*");
+    }
+
+    // the list methods that take columns only select those (from FieldSelection), the other fields are left unset
+    public List<Run> getAllRuns(String columns) {
+        String sql = "SELECT " + columns + " FROM runs WHERE isDeleted = false";
+        return jdbcTemplate.query(sql, new RunRowMapper());
     }
     
     // this method will retrieve a run by its ID
     public Run getRunById(int id) {
         String sql = "SELECT * FROM runs WHERE runID = ?";
-        return jdbcTemplate.queryForObject(sql, new RunMapper(), id);
+        return jdbcTemplate.queryForObject(sql, new RunRowMapper(), id);
     }
 
  // this method is where a run is added to the database
+    // the daily rollup and goal contributions are updated in the same transaction
+    @Transactional
     public int addRun(Run run) {
-        String sql = "INSERT INTO runs (userID, runDate, runDistance, runDuration, runSpeed, unit, additionalDetails, isDeleted) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        run.setChangeSeq(syncDao.nextSequence(run.getUserID()));
+        setDistanceMetres(run);
 
      // keyholder allows for the auto-generated PK to be accessed instantly after it has been inserted
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         // lambda used to prepare the SQL insert statement with the run's parameter values
         int result = jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setInt(1, run.getUserID());
-            ps.setDate(2, run.getRunDate());
-            ps.setBigDecimal(3, run.getRunDistance());
-            ps.setTime(4, run.getRunDuration());
-            ps.setBigDecimal(5, run.getRunSpeed());
-            ps.setString(6, run.getUnit());
-            ps.setString(7, run.getAdditionalDetails());
-            ps.setBoolean(8, run.getIsDeleted());
+            PreparedStatement ps = connection.prepareStatement(RunBinder.INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            RunBinder.bindInsert(ps, run);
             return ps;
         }, keyHolder);// keyholder gets generated keys after execution
 
@@ -58,79 +88,364 @@ public class RunDao {
             run.setRunID(keyHolder.getKey().intValue());
         }
 
+        if (result > 0 && !run.getIsDeleted()) {
+            runRollupDao.addRun(run);
+            runGoalDao.attributeRun(run);
+        }
+        userDataVersions.bump(run.getUserID(), "run.created", run.getRunID());
+
         return result;
     }
 
+ // this method inserts many runs with one JDBC batch, used by the bulk import endpoint
+    // with rewriteBatchedStatements on, the driver sends them as a few multi-row inserts instead of one round trip per run
+    // the generated IDs are set back on the run objects, rollups and goal contributions are done in the same transaction
+    @Transactional
+    public int[] addRuns(List<Run> runs) {
+        // each run gets its own sequence number, a block is reserved per user in the batch
+        // (in user ID order, like every write that takes more than one user's sequence)
+        Map<Integer, List<Run>> byUser = new TreeMap<>();
+        for (Run run : runs) {
+            byUser.computeIfAbsent(run.getUserID(), k -> new ArrayList<>()).add(run);
+        }
+        for (Map.Entry<Integer, List<Run>> e : byUser.entrySet()) {
+            long seq = syncDao.nextSequence(e.getKey(), e.getValue().size());
+            for (Run run : e.getValue()) {
+                run.setChangeSeq(seq++);
+                setDistanceMetres(run);
+            }
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        int[] results = jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(RunBinder.INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        RunBinder.bindInsert(ps, runs.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return runs.size();
+                    }
+                },
+                keyHolder);
+
+        // keys come back in insert order
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<Run> activeRuns = new ArrayList<>();
+        List<Integer> activeIds = new ArrayList<>();
+        for (int i = 0; i < runs.size() && i < keys.size(); i++) {
+            Run run = runs.get(i);
+            run.setRunID(((Number) keys.get(i).values().iterator().next()).intValue());
+            if (!run.getIsDeleted()) {
+                activeRuns.add(run);
+                activeIds.add(run.getRunID());
+            }
+        }
+
+        if (!activeRuns.isEmpty()) {
+            runRollupDao.addRuns(activeRuns);
+            runGoalDao.attributeRuns(activeIds);
+        }
+        // one run.imported event per user rather than one per run, an import of thousands of runs would otherwise
+        // overflow every open stream's queue. The client reloads its runs when it gets one
+        byUser.keySet().forEach(userId -> userDataVersions.bump(userId, "run.imported", 0));
+        return results;
+    }
+
  // this method will update an existing run's details in the database
+    // the old values are taken off the daily rollup and goals and the new ones added, all in one transaction
+    // a run stays with the user it was added for: moving it would leave the old user's sync with no row to see it go,
+    // so an update with a different userID is refused with an IllegalArgumentException
+    @Transactional
     public int updateRun(Run run) {
-        String sql = "UPDATE runs SET userID = ?, runDate = ?, runDistance = ?, runDuration = ?, runSpeed = ?, unit = ?, " +
-                     "additionalDetails = ?, isDeleted = ? WHERE runID = ?";
-        return jdbcTemplate.update(sql,
-                run.getUserID(),
-                run.getRunDate(),
-                run.getRunDistance(),
-                run.getRunDuration(),
-                run.getRunSpeed(),
-                run.getUnit(),
-                run.getAdditionalDetails(),
-                run.getIsDeleted(),
-                run.getRunID());
+        Integer owner = ownerOf(run.getRunID());
+        if (owner == null) {
+            return 0;
+        }
+        if (owner != run.getUserID()) {
+            throw new IllegalArgumentException("A run can't be moved to another user");
+        }
+        run.setChangeSeq(syncDao.nextSequence(owner));
+        Run oldRun = lockRun(run.getRunID());
+        setDistanceMetres(run);
+        int result = jdbcTemplate.update(RunBinder.UPDATE_SQL, ps -> RunBinder.bindUpdate(ps, run));
+
+        if (result > 0 && oldRun != null) {
+            if (!oldRun.getIsDeleted()) {
+                runRollupDao.removeRun(oldRun);
+                runGoalDao.retractRun(oldRun.getRunID(), run.getChangeSeq());
+            }
+            if (!run.getIsDeleted()) {
+                runRollupDao.addRun(run);
+                runGoalDao.attributeRun(run);
+            }
+            userDataVersions.bump(run.getUserID(), "run.updated", run.getRunID());
+        }
+        return result;
     }
  
     // this method will soft delete a run, useful for keeping records without showing them in the frontend
+    // the row is kept with a new sequence number, so clients that sync see it as a tombstone
+    @Transactional
     public int softDeleteRun(int runID) {
-        String sql = "UPDATE runs SET isDeleted = true WHERE runID = ?";
-        return jdbcTemplate.update(sql, runID);
+        Integer owner = ownerOf(runID);
+        if (owner == null) {
+            return 0;
+        }
+        long seq = syncDao.nextSequence(owner);
+        Run oldRun = lockRun(runID);
+        if (oldRun == null) {
+            return 0;
+        }
+        String sql = "UPDATE runs SET isDeleted = true, changeSeq = ? WHERE runID = ?";
+        int result = jdbcTemplate.update(sql, seq, runID);
+        // only take it off the rollup if it was counted before
+        if (result > 0 && !oldRun.getIsDeleted()) {
+            runRollupDao.removeRun(oldRun);
+            runGoalDao.retractRun(runID, seq);
+        }
+        if (result > 0) {
+            userDataVersions.bump(oldRun.getUserID(), "run.deleted", runID);
+        }
+        return result;
     }
 
     // this method allows a soft-deleted run to be restored
+    @Transactional
     public int restoreRun(int runID) {
-        String sql = "UPDATE runs SET isDeleted = false WHERE runID = ?";
-        return jdbcTemplate.update(sql, runID);
+        Integer owner = ownerOf(runID);
+        if (owner == null) {
+            return 0;
+        }
+        long seq = syncDao.nextSequence(owner);
+        Run oldRun = lockRun(runID);
+        if (oldRun == null) {
+            return 0;
+        }
+        oldRun.setChangeSeq(seq);
+        String sql = "UPDATE runs SET isDeleted = false, changeSeq = ? WHERE runID = ?";
+        int result = jdbcTemplate.update(sql, oldRun.getChangeSeq(), runID);
+        if (result > 0 && oldRun.getIsDeleted()) {
+            runRollupDao.addRun(oldRun);
+            runGoalDao.attributeRun(oldRun);
+        }
+        if (result > 0) {
+            userDataVersions.bump(oldRun.getUserID(), "run.restored", runID);
+        }
+        return result;
+    }
+
+    // the totals, rollups and goals all add up distanceMetres, so it is worked out from runDistance and unit on every write
+    private static void setDistanceMetres(Run run) {
+        run.setDistanceMetres(run.getDistanceCentis() == Columns.NULL_INT ? 0
+                : Math.toIntExact(UnitConverter.centisToMetres(run.getDistanceCentis(), run.getUnit())));
+    }
+
+    // the user a run belongs to, read without a lock so the user's sequence can be taken before the run is locked
+    private Integer ownerOf(int runID) {
+        List<Integer> owner = jdbcTemplate.queryForList("SELECT userID FROM runs WHERE runID = ?", Integer.class, runID);
+        return owner.isEmpty() ? null : owner.get(0);
+    }
+
+    // reads a run and locks its row until the transaction ends, so two writes to the same run can't double count the rollup
+    // (the owner's sequence is taken first, a run's user never changes so ownerOf can be read without the lock)
+    private Run lockRun(int runID) {
+        String sql = "SELECT * FROM runs WHERE runID = ? FOR UPDATE";
+        List<Run> runs = jdbcTemplate.query(sql, new RunRowMapper(), runID);
+        return runs.isEmpty() ? null : runs.get(0);
     }
 
  // this method gets all deleted runs for a specific user
     public List<Run> getDeletedRunsByUser(int userId) {
-        String sql = "SELECT * FROM runs WHERE userID = ? AND isDeleted = true";
-        return jdbcTemplate.query(sql, new RunMapper(), userId);
+        return getDeletedRunsByUser(userId, "*");
+    }
+
+    public List<Run> getDeletedRunsByUser(int userId, String columns) {
+        String sql = "SELECT " + columns + " FROM runs WHERE userID = ? AND isDeleted = true";
+        return jdbcTemplate.query(sql, new RunRowMapper(), userId);
     }
 
     // this method gets runs for the past 7 days for a specific user, sorted by date
     public List<Run> getRecentRuns(int userId) {
+        return getRecentRuns(userId, "*");
+    }
+
+    public List<Run> getRecentRuns(int userId, String columns) {
     	//split into new lines for readability, where each section of the query has ended 
-        String sql = "SELECT * \r\n"
+        String sql = "SELECT " + columns + " \r\n"
         		+ "FROM runs \r\n"
         		+ "WHERE userID = ? \r\n"
         		// current date - 7 days, to get last 7 days of runs
         		+ "  AND runDate >= CURDATE() - INTERVAL 7 DAY \r\n"
         		+ "  AND isDeleted = false \r\n"
         		+ "ORDER BY runDate DESC;\r\n";
-        return jdbcTemplate.query(sql, new RunMapper(), userId);
+        return jdbcTemplate.query(sql, new RunRowMapper(), userId);
     }
     
  // this method gets all non-deleted runs for a specific user, sorted by date
     public List<Run> getRunsByUserId(int userId) {
-    	String sql = "SELECT * FROM runs WHERE userID = ? AND isDeleted = false ORDER BY runDate DESC";
-    	return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(Run.class), userId);
-    }
-
-
- // this is a helper class that maps each row from the result set to a Run object
-    private static class RunMapper implements RowMapper<Run> {
-        @Override
-        public Run mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Run run = new Run(); // create a new run object
-            // set the fields from the result set
-            run.setRunID(rs.getInt("runID"));
-            run.setUserID(rs.getInt("userID"));
-            run.setRunDate(rs.getDate("runDate"));
-            run.setRunDistance(rs.getBigDecimal("runDistance"));
-            run.setRunDuration(rs.getTime("runDuration"));
-            run.setRunSpeed(rs.getBigDecimal("runSpeed"));
-            run.setUnit(rs.getString("unit"));
-            run.setAdditionalDetails(rs.getString("additionalDetails"));
-            run.setIsDeleted(rs.getBoolean("isDeleted"));
-            return run; // return the populated run object
-        } 
+        return getRunsByUserId(userId, "*");
+    }
+
+    public List<Run> getRunsByUserId(int userId, String columns) {
+    	String sql = "SELECT " + columns + " FROM runs WHERE userID = ? AND isDeleted = false ORDER BY runDate DESC, runID DESC";
+    	return jdbcTemplate.query(sql, new RunRowMapper(), userId);
+    }
+
+ // this method gets one page of a user's non-deleted runs, newest first
+    // keyset pagination on (runDate, runID) so idx_user_run is used and later pages cost the same as the first
+    public CursorPage<Run> getRunsByUserIdPage(int userId, String cursor, int limit) {
+        return getRunPage(userId, false, cursor, limit, "*");
+    }
+
+    // columns must include runID and runDate, the next cursor is made from them
+    public CursorPage<Run> getRunsByUserIdPage(int userId, String cursor, int limit, String columns) {
+        return getRunPage(userId, false, cursor, limit, columns);
+    }
+
+ // this method gets one page of a user's soft-deleted runs, newest first
+    public CursorPage<Run> getDeletedRunsByUserPage(int userId, String cursor, int limit) {
+        return getRunPage(userId, true, cursor, limit, "*");
+    }
+
+    public CursorPage<Run> getDeletedRunsByUserPage(int userId, String cursor, int limit, String columns) {
+        return getRunPage(userId, true, cursor, limit, columns);
+    }
+
+    // shared keyset query for the two paged run lists above
+    private CursorPage<Run> getRunPage(int userId, boolean deleted, String cursor, int limit, String columns) {
+        List<Run> runs;
+        // one extra row is fetched to tell if there is a next page
+        if (cursor == null) {
+            String sql = "SELECT " + columns + " FROM runs WHERE userID = ? AND isDeleted = ? " +
+                         "ORDER BY runDate DESC, runID DESC LIMIT ?";
+            runs = jdbcTemplate.query(sql, new RunRowMapper(), userId, deleted, limit + 1);
+        } else {
+            Date afterDate = CursorCodec.decodeRunDate(cursor);
+            int afterId = CursorCodec.decodeRunId(cursor);
+            // runDate <= ? keeps this a range scan on the index, the OR handles ties on the same day
+            String sql = "SELECT " + columns + " FROM runs WHERE userID = ? AND isDeleted = ? " +
+                         "AND runDate <= ? AND (runDate < ? OR runID < ?) " +
+                         "ORDER BY runDate DESC, runID DESC LIMIT ?";
+            runs = jdbcTemplate.query(sql, new RunRowMapper(), userId, deleted, afterDate, afterDate, afterId, limit + 1);
+        }
+
+        String nextCursor = null;
+        if (runs.size() > limit) {
+            runs = runs.subList(0, limit);
+            Run last = runs.get(limit - 1);
+            nextCursor = CursorCodec.encodeRunCursor(last.getRunDate(), last.getRunID());
+        }
+        return new CursorPage<>(runs, nextCursor, limit);
+    }
+
+ // this method returns distance, duration and count totals per day, week or month for a date range
+    // the grouping is done in MySQL so only one row per period comes back, gaps are then filled with zeros
+    // distances are summed in metres (idx_run_totals covers the whole query), RunAPI converts them into the user's unit
+    public List<RunSummary> getRunSummary(int userId, LocalDate from, LocalDate to, String period) {
+        String periodExpr;
+        switch (period) {
+            case "day":
+                periodExpr = "runDate";
+                break;
+            case "week":
+                // weeks start on monday
+                periodExpr = "DATE_SUB(runDate, INTERVAL WEEKDAY(runDate) DAY)";
+                break;
+            case "month":
+                periodExpr = "DATE_SUB(runDate, INTERVAL DAYOFMONTH(runDate) - 1 DAY)";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown period: " + period);
+        }
+
+        String sql = "SELECT " + periodExpr + " AS periodStart, " +
+                "SUM(distanceMetres) AS totalMetres, SUM(durationSeconds) AS totalSeconds, COUNT(*) AS runCount " +
+                "FROM runs WHERE userID = ? AND isDeleted = false AND runDate BETWEEN ? AND ? GROUP BY periodStart";
+
+        Map<LocalDate, RunSummary> byPeriod = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            LocalDate periodStart = rs.getDate("periodStart").toLocalDate();
+            byPeriod.put(periodStart, new RunSummary(periodStart, rs.getLong("totalMetres"),
+                    rs.getLong("totalSeconds"), rs.getInt("runCount")));
+        }, userId, Date.valueOf(from), Date.valueOf(to));
+
+        // walk every period in the range so the chart gets a zero for days without runs
+        List<RunSummary> summaries = new ArrayList<>();
+        for (LocalDate p = periodStartOf(from, period); !p.isAfter(to); p = nextPeriod(p, period)) {
+            RunSummary summary = byPeriod.get(p);
+            summaries.add(summary != null ? summary : new RunSummary(p, 0, 0, 0));
+        }
+        return summaries;
+    }
+
+    // first day of the period that a date falls in, must match the SQL expressions above
+    private static LocalDate periodStartOf(LocalDate date, String period) {
+        switch (period) {
+            case "week":
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case "month":
+                return date.withDayOfMonth(1);
+            default:
+                return date;
+        }
+    }
+
+    private static LocalDate nextPeriod(LocalDate periodStart, String period) {
+        switch (period) {
+            case "week":
+                return periodStart.plusWeeks(1);
+            case "month":
+                return periodStart.plusMonths(1);
+            default:
+                return periodStart.plusDays(1);
+        }
+    }
+ // this method streams runs to a row handler instead of building a list, used by the export endpoint
+    // userId is optional, without it every non-deleted run is exported
+    // a forward-only, read-only statement with fetch size Integer.MIN_VALUE makes the MySQL driver
+    // hand rows over one at a time rather than loading the whole result into memory
+    public void streamRuns(Integer userId, RowCallbackHandler handler) {
+        String sql = userId == null
+                ? "SELECT * FROM runs WHERE isDeleted = false"
+                : "SELECT * FROM runs WHERE userID = ? AND isDeleted = false ORDER BY runDate DESC";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            if (userId != null) {
+                ps.setInt(1, userId);
+            }
+            return ps;
+        }, handler);
+    }
+
+ // this method streams the columns the run hot tier holds (UserRunColumns) for a user's non-deleted runs, newest first
+    // additionalDetails is only read for runs on or after detailsFrom, older runs are added up but never listed
+    // with from only the runs on or after that day are read, with a runID only that run (nothing when it has been
+    // deleted)
+    public void streamRunColumns(int userId, Integer runID, LocalDate from, LocalDate detailsFrom, RowCallbackHandler handler) {
+        String sql = "SELECT runID, runDate, distanceMetres, durationSeconds, runDistance, runSpeed, unit, " +
+                     "CASE WHEN runDate >= ? THEN additionalDetails END AS additionalDetails, changeSeq, updatedAt " +
+                     "FROM runs WHERE userID = ? AND isDeleted = false" +
+                     (runID != null ? " AND runID = ?" : "") + (from != null ? " AND runDate >= ?" : "") +
+                     " ORDER BY runDate DESC, runID DESC";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            int i = 1;
+            ps.setDate(i++, Date.valueOf(detailsFrom));
+            ps.setInt(i++, userId);
+            if (runID != null) {
+                ps.setInt(i++, runID);
+            }
+            if (from != null) {
+                ps.setDate(i, Date.valueOf(from));
+            }
+            return ps;
+        }, handler);
     }
 }
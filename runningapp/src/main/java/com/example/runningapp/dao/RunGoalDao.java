@@ -0,0 +1,103 @@
+package com.example.runningapp.dao;
+
+import com.example.runningapp.model.Run;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.Collections;
+import java.util.List;
+
+//this is the DAO class for the rungoals table, it records how much each run contributed to each goal
+// contributions are in metres, so km runs count towards miles goals and the other way round without converting anything
+// goals.progressMetres holds the running sum of those contributions so progress can be read without re-adding runs
+// these methods are called by RunDao and GoalDao inside their own transactions
+
+@Repository
+public class RunGoalDao {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+ // this method records a run's contribution to every active distance goal of the same user
+    // a goal matches when it is not deleted, has a distance and the run is on or before its target date
+    // the goals changed get the run's change sequence number
+    public void attributeRun(Run run) {
+        if (run.getDistanceMetres() <= 0) {
+            return;
+        }
+
+        // one insert for all matching goals
+        String insertSql = "INSERT INTO rungoals (runID, goalID, contributionMetres) " +
+                           "SELECT ?, goalID, ? FROM goals " +
+                           "WHERE userID = ? AND isDeleted = false AND goalMetres IS NOT NULL " +
+                           "AND (targetDate IS NULL OR targetDate >= ?)";
+        int inserted = jdbcTemplate.update(insertSql,
+                run.getRunID(), run.getDistanceMetres(), run.getUserID(), Date.valueOf(run.getRunDate()));
+
+        // then one update adds the new contributions onto the goals' running totals
+        if (inserted > 0) {
+            String totalSql = "UPDATE goals g JOIN rungoals rg ON rg.goalID = g.goalID " +
+                              "SET g.progressMetres = g.progressMetres + rg.contributionMetres, g.changeSeq = ? WHERE rg.runID = ?";
+            jdbcTemplate.update(totalSql, run.getChangeSeq(), run.getRunID());
+        }
+    }
+
+ // this method records the contributions of many newly inserted runs at once, used by the bulk import
+    // same matching rules as attributeRun, but done with one insert and one update for the whole list
+    // each goal gets the highest change sequence number of the runs that added to it
+    public void attributeRuns(List<Integer> runIDs) {
+        if (runIDs.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(",", Collections.nCopies(runIDs.size(), "?"));
+
+        String insertSql = "INSERT INTO rungoals (runID, goalID, contributionMetres) " +
+                           "SELECT r.runID, g.goalID, r.distanceMetres FROM runs r " +
+                           "JOIN goals g ON g.userID = r.userID AND g.isDeleted = false AND g.goalMetres IS NOT NULL " +
+                           "AND (g.targetDate IS NULL OR g.targetDate >= r.runDate) " +
+                           "WHERE r.isDeleted = false AND r.runID IN (" + placeholders + ") AND r.distanceMetres > 0";
+        int inserted = jdbcTemplate.update(insertSql, runIDs.toArray());
+
+        if (inserted > 0) {
+            String totalSql = "UPDATE goals g JOIN (SELECT rg.goalID, SUM(rg.contributionMetres) AS added, " +
+                              "MAX(r.changeSeq) AS seq FROM rungoals rg JOIN runs r ON r.runID = rg.runID " +
+                              "WHERE rg.runID IN (" + placeholders + ") GROUP BY rg.goalID) t ON t.goalID = g.goalID " +
+                              "SET g.progressMetres = g.progressMetres + t.added, g.changeSeq = t.seq";
+            jdbcTemplate.update(totalSql, runIDs.toArray());
+        }
+    }
+
+ // this method works a goal's contributions out again from all of the user's runs, used when a goal is created,
+    // edited or restored, since runs are only attributed to the goals that exist (and match) when the run is written
+    // the same rules as attributeRun: every non-deleted run of the user on or before the target date, in any unit
+    // changeSeq is the sequence number of the goal write, taken before this is called, so every run write of the user
+    // has either committed or is still waiting for the sequence and will attribute itself to the goal afterwards
+    public void recomputeGoal(int goalID, long changeSeq) {
+        jdbcTemplate.update("DELETE FROM rungoals WHERE goalID = ?", goalID);
+
+        String insertSql = "INSERT INTO rungoals (runID, goalID, contributionMetres) " +
+                           "SELECT r.runID, g.goalID, r.distanceMetres FROM goals g " +
+                           "JOIN runs r ON r.userID = g.userID AND r.isDeleted = false AND r.distanceMetres > 0 " +
+                           "AND (g.targetDate IS NULL OR r.runDate <= g.targetDate) " +
+                           "WHERE g.goalID = ? AND g.isDeleted = false AND g.goalMetres IS NOT NULL";
+        jdbcTemplate.update(insertSql, goalID);
+
+        String totalSql = "UPDATE goals SET progressMetres = " +
+                          "(SELECT COALESCE(SUM(contributionMetres), 0) FROM rungoals WHERE goalID = ?), changeSeq = ? " +
+                          "WHERE goalID = ?";
+        jdbcTemplate.update(totalSql, goalID, changeSeq, goalID);
+    }
+
+ // this method takes back everything a run contributed, used when a run is edited, deleted or restored
+    // changeSeq is the sequence number of the write doing it, the goals changed are stamped with it
+    public void retractRun(int runID, long changeSeq) {
+        String totalSql = "UPDATE goals g JOIN rungoals rg ON rg.goalID = g.goalID " +
+                          "SET g.progressMetres = g.progressMetres - rg.contributionMetres, g.changeSeq = ? WHERE rg.runID = ?";
+        int updated = jdbcTemplate.update(totalSql, changeSeq, runID);
+        if (updated > 0) {
+            jdbcTemplate.update("DELETE FROM rungoals WHERE runID = ?", runID);
+        }
+    }
+}
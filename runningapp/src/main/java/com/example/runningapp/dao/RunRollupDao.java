@@ -0,0 +1,107 @@
+package com.example.runningapp.dao;
+
+import com.example.runningapp.model.Run;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+//this is the DAO class for the run_daily_rollup table
+// one row per user per day holding the totals of that day's non-deleted runs,
+// RunDao keeps it up to date inside the same transaction as each run write
+
+@Repository
+public class RunRollupDao {
+
+	// number of userIDs rebuilt per transaction
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // adds (or with negative values, takes away) one run's totals on its day row
+    private static final String UPSERT_SQL = "INSERT INTO run_daily_rollup (userID, runDay, distanceMetres, totalSeconds, runCount) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE distanceMetres = distanceMetres + VALUES(distanceMetres), " +
+            "totalSeconds = totalSeconds + VALUES(totalSeconds), runCount = runCount + VALUES(runCount)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+ // this method adds a run's distance, duration and count onto its day
+    public void addRun(Run run) {
+        applyDelta(run, 1);
+    }
+
+ // this method takes a run's distance, duration and count back off its day
+    public void removeRun(Run run) {
+        applyDelta(run, -1);
+    }
+
+ // this method adds a list of runs onto their days with a single JDBC batch, used by the bulk import
+    public void addRuns(List<Run> runs) {
+        List<Object[]> args = new ArrayList<>(runs.size());
+        for (Run run : runs) {
+            args.add(deltaArgs(run, 1));
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+    }
+
+    // upserts the day row, sign is 1 to add the run and -1 to remove it
+    private void applyDelta(Run run, int sign) {
+        jdbcTemplate.update(UPSERT_SQL, deltaArgs(run, sign));
+    }
+
+    private static Object[] deltaArgs(Run run, int sign) {
+        return new Object[] {
+                run.getUserID(),
+                Date.valueOf(run.getRunDate()),
+                sign * run.getDistanceMetres(),
+                sign * run.getDurationSeconds(),
+                sign
+        };
+    }
+
+ // this method returns {distanceMetres, totalSeconds, runCount} for a user between two dates (inclusive)
+    // reads at most one rollup row per day instead of every run
+    public long[] getTotals(int userId, LocalDate from, LocalDate to) {
+        String sql = "SELECT COALESCE(SUM(distanceMetres), 0) AS metres, COALESCE(SUM(totalSeconds), 0) AS seconds, " +
+                     "COALESCE(SUM(runCount), 0) AS runs FROM run_daily_rollup WHERE userID = ? AND runDay BETWEEN ? AND ?";
+        return jdbcTemplate.queryForObject(sql,
+                (rs, rowNum) -> new long[] { rs.getLong("metres"), rs.getLong("seconds"), rs.getLong("runs") },
+                userId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+ // this method regenerates every rollup row from the runs table, used after a schema change or if the totals drift
+    // users are done in batches of userIDs, each batch in its own transaction so the tables are never locked for long
+    public int rebuildAll() {
+        Integer maxUserId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(userID), 0) FROM users", Integer.class);
+        int batches = 0;
+        for (int start = 1; start <= maxUserId; start += REBUILD_BATCH_SIZE) {
+            int from = start;
+            int to = start + REBUILD_BATCH_SIZE - 1;
+            transactionTemplate.executeWithoutResult(status -> rebuildUsers(from, to));
+            batches++;
+        }
+        return batches;
+    }
+
+    // replaces the rollup rows for a range of userIDs with freshly grouped totals
+    // the users' sync_sequences rows are locked first (in user ID order, the lock every run write takes before
+    // touching runs), so a run written while a range is rebuilt waits for it instead of adding onto rows that are
+    // about to be replaced. The range lock also covers users with no sequence row yet
+    private void rebuildUsers(int fromUserId, int toUserId) {
+        jdbcTemplate.queryForList("SELECT userID FROM sync_sequences WHERE userID BETWEEN ? AND ? ORDER BY userID FOR UPDATE",
+                Integer.class, fromUserId, toUserId);
+        jdbcTemplate.update("DELETE FROM run_daily_rollup WHERE userID BETWEEN ? AND ?", fromUserId, toUserId);
+        String sql = "INSERT INTO run_daily_rollup (userID, runDay, distanceMetres, totalSeconds, runCount) " +
+                     "SELECT userID, runDate, SUM(distanceMetres), SUM(durationSeconds), COUNT(*) " +
+                     "FROM runs WHERE isDeleted = false AND userID BETWEEN ? AND ? GROUP BY userID, runDate";
+        jdbcTemplate.update(sql, fromUserId, toUserId);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.runningapp.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+//this is the DAO class for the run_samples table, one encoded blob of samples per run (see SampleCodec)
+
+@Repository
+public class RunSampleDao {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+ // this method saves a run's encoded samples, replacing any that were saved before
+    public int saveSamples(int runID, int sampleCount, byte[] data) {
+        String sql = "INSERT INTO run_samples (runID, sampleCount, sampleData) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE sampleCount = VALUES(sampleCount), sampleData = VALUES(sampleData)";
+        return jdbcTemplate.update(sql, runID, sampleCount, data);
+    }
+
+ // this method returns a run's encoded samples, or null if none were saved
+    public byte[] getSamples(int runID) {
+        String sql = "SELECT sampleData FROM run_samples WHERE runID = ?";
+        List<byte[]> rows = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getBytes("sampleData"), runID);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+}
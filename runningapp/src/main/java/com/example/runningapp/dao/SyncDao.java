@@ -0,0 +1,112 @@
+package com.example.runningapp.dao;
+
+import com.example.runningapp.model.Goal;
+import com.example.runningapp.model.GoalRowMapper;
+import com.example.runningapp.model.Run;
+import com.example.runningapp.model.RunRowMapper;
+import com.example.runningapp.model.SyncChanges;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//this is the DAO class for the per-user change sequence and the sync reads that use it
+// every write to a user's runs or goals stamps the rows it changes with the next number(s) of that user's sequence,
+// so a client that remembers the highest number it has seen only needs the rows with a higher one
+
+@Repository
+public class SyncDao {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+ // this method reserves count numbers of the user's sequence and returns the first one
+    // it has to run inside the caller's transaction: the sync_sequences row stays locked until the write commits,
+    // so a user's writes commit in sequence order and a client can never skip a number that commits late
+    // writes take it before locking any run or goal, so every row lock on a user's data is taken while holding that
+    // user's sequence and writes to the same user can't deadlock. A write that needs several users' sequences (a bulk
+    // import) takes them in user ID order
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long nextSequence(int userId, int count) {
+        jdbcTemplate.update("INSERT INTO sync_sequences (userID, lastSeq) VALUES (?, ?) " +
+                            "ON DUPLICATE KEY UPDATE lastSeq = lastSeq + ?", userId, count, count);
+        long last = jdbcTemplate.queryForObject("SELECT lastSeq FROM sync_sequences WHERE userID = ?", Long.class, userId);
+        return last - count + 1;
+    }
+
+    public long nextSequence(int userId) {
+        return nextSequence(userId, 1);
+    }
+
+ // this method returns what changed for the user after the since watermark, at most about limit runs and limit goals
+    // the last sequence number is read first and nothing after it is returned, so a write that commits while the runs
+    // and goals are read is left for the next sync instead of being half seen
+    public SyncChanges getChanges(int userId, long since, int limit) {
+        long upTo = getLastSequence(userId);
+        List<Run> runs = getRunsChangedSince(userId, since, upTo, limit);
+        List<Goal> goals = getGoalsChangedSince(userId, since, upTo, limit);
+
+        // when a list didn't fit, stop just before the first number left out so the next sync starts from there
+        // (several goals can share a number when one run changed them all, so a number is never split between syncs)
+        long next = upTo;
+        if (runs.size() > limit) {
+            next = Math.min(next, runs.get(limit).getChangeSeq() - 1);
+        }
+        if (goals.size() > limit) {
+            next = Math.min(next, goals.get(limit).getChangeSeq() - 1);
+        }
+        if (next <= since && next < upTo) {
+            // more rows share the first number than fit in the limit, that one number is returned whole
+            next = Math.min(runs.isEmpty() ? upTo : runs.get(0).getChangeSeq(), goals.isEmpty() ? upTo : goals.get(0).getChangeSeq());
+            runs = getRunsChangedSince(userId, since, next, Integer.MAX_VALUE - 1);
+            goals = getGoalsChangedSince(userId, since, next, Integer.MAX_VALUE - 1);
+        }
+
+        SyncChanges changes = new SyncChanges(since, next, next < upTo, new ArrayList<>(), new ArrayList<>(),
+                new ArrayList<>(), new ArrayList<>());
+        for (Run run : runs) {
+            if (run.getChangeSeq() > next) {
+                break;
+            }
+            if (run.getIsDeleted()) {
+                changes.getDeletedRunIDs().add(run.getRunID());
+            } else {
+                changes.getRuns().add(run);
+            }
+        }
+        for (Goal goal : goals) {
+            if (goal.getChangeSeq() > next) {
+                break;
+            }
+            if (goal.getIsDeleted()) {
+                changes.getDeletedGoalIDs().add(goal.getGoalID());
+            } else {
+                changes.getGoals().add(goal);
+            }
+        }
+        return changes;
+    }
+
+ // this method returns the user's runs changed after the given number, deleted ones included, in sequence order
+    // read from idx_run_sync, limit + 1 rows are fetched so the caller can tell if there are more
+    public List<Run> getRunsChangedSince(int userId, long since, long upTo, int limit) {
+        String sql = "SELECT * FROM runs WHERE userID = ? AND changeSeq > ? AND changeSeq <= ? ORDER BY changeSeq LIMIT ?";
+        return jdbcTemplate.query(sql, new RunRowMapper(), userId, since, upTo, limit + 1);
+    }
+
+ // this method returns the user's goals changed after the given number, deleted ones included, in sequence order
+    public List<Goal> getGoalsChangedSince(int userId, long since, long upTo, int limit) {
+        String sql = "SELECT * FROM goals WHERE userID = ? AND changeSeq > ? AND changeSeq <= ? ORDER BY changeSeq LIMIT ?";
+        return jdbcTemplate.query(sql, new GoalRowMapper(), userId, since, upTo, limit + 1);
+    }
+
+ // this method returns the last sequence number given out to the user, 0 if there hasn't been a write yet
+    public long getLastSequence(int userId) {
+        List<Long> last = jdbcTemplate.queryForList("SELECT lastSeq FROM sync_sequences WHERE userID = ?", Long.class, userId);
+        return last.isEmpty() ? 0 : last.get(0);
+    }
+}
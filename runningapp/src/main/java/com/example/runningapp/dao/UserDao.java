@@ -1,6 +1,10 @@
 package com.example.runningapp.dao;
 
+import com.example.runningapp.model.CacheStats;
 import com.example.runningapp.model.User;
+import com.example.runningapp.model.UserBinder;
+import com.example.runningapp.model.UserRowMapper;
+import com.example.runningapp.util.UserCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -9,8 +13,6 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
 
 // this is the DAO class for connecting user details to the MYSQL database
@@ -21,11 +23,12 @@ public class UserDao {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    // users are read on nearly every request but hardly ever change, so lookups by ID and username go through this cache
+    @Autowired
+    private UserCache userCache;
+
     // this method is where a user is added to the database
     public int addUser(User user) {
-        String sql = "INSERT INTO users (username, name, password, unitPreference) VALUES (?, ?, ?, ?)";
-
-        
         //keyholder allows for the auto-genereated PK to be accessed instantly after it has been inserted
         // there is no need to requery the DB 
         // it allows for the id to not remain at 0 but rather increment automatically
@@ -33,11 +36,8 @@ public class UserDao {
 
       //lambda used to prepare the SQL insert statement with the user's parameter values
         jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql, new String[]{"userID"});
-            ps.setString(1, user.getUsername());
-            ps.setString(2, user.getName());
-            ps.setString(3, user.getPassword());
-            ps.setString(4, user.getUnitPreference());
+            PreparedStatement ps = connection.prepareStatement(UserBinder.INSERT_SQL, new String[]{"userID"});
+            UserBinder.bindInsert(ps, user);
             return ps;
         }, keyHolder); // keyholder gets generated keys after execution
 
@@ -52,56 +52,85 @@ public class UserDao {
 
     // this method is where all users are retrieved, useful for checking if users have been inserted into database or not
     public List<User> getAllUsers() {
-        String sql = "SELECT * FROM users WHERE isDeleted = FALSE";
-        return jdbcTemplate.query(sql, this::mapRowToUser);
+        return getAllUsers("*");
+    }
+
+    // only the given columns (from FieldSelection) are selected, so e.g. the password hash can be left out
+    public List<User> getAllUsers(String columns) {
+        String sql = "SELECT " + columns + " FROM users WHERE isDeleted = FALSE";
+        return jdbcTemplate.query(sql, new UserRowMapper());
     }
 
-    // this method will retrieve a user by their id
+    // this method will retrieve a user by their id, from the cache when possible
     public User getUserById(int userId) {
+        return userCache.getById(userId, this::loadUserById);
+    }
+
+    private User loadUserById(int userId) {
         String sql = "SELECT * FROM users WHERE userID = ?";
         try {
-            return jdbcTemplate.queryForObject(sql, this::mapRowToUser, userId);
+            return jdbcTemplate.queryForObject(sql, new UserRowMapper(), userId);
         } catch (EmptyResultDataAccessException e) {
             return null;
         }
     }
 
     // this method will update a users details
+    // the cached copy is dropped once the update is done so the next read sees the new details
     public int updateUser(User user) {
-        String sql = "UPDATE users SET username = ?, name = ?, password = ?, unitPreference = ? WHERE userID = ?";
-        return jdbcTemplate.update(sql, user.getUsername(), user.getName(), user.getPassword(), user.getUnitPreference(), user.getUserID());
+        try {
+            return jdbcTemplate.update(UserBinder.UPDATE_SQL, ps -> UserBinder.bindUpdate(ps, user));
+        } finally {
+            userCache.invalidate(user.getUserID());
+        }
+    }
+
+    // this method swaps a user's password hash for one made with a new cost factor
+    // it only changes the row if the old hash is still there, so a password change made at the same time isn't undone
+    public int updatePasswordHash(int userId, String oldHash, String newHash) {
+        String sql = "UPDATE users SET password = ? WHERE userID = ? AND password = ?";
+        try {
+            return jdbcTemplate.update(sql, newHash, userId, oldHash);
+        } finally {
+            userCache.invalidate(userId);
+        }
     }
 
     // this method will softdelete a user, useful since they won't be permanently deleted when delete is clicked in frontend
     public int softDeleteUser(int userId) {
         String sql = "UPDATE users SET isDeleted = TRUE WHERE userID = ?";
-        return jdbcTemplate.update(sql, userId);
+        try {
+            return jdbcTemplate.update(sql, userId);
+        } finally {
+            userCache.invalidate(userId);
+        }
     }
     
     //this method allows for a user to be restored, may be useful for database 
     public int restoreUser(int userId) {
         String sql = "UPDATE users SET isDeleted = FALSE WHERE userID = ?";
-        return jdbcTemplate.update(sql, userId);
+        try {
+            return jdbcTemplate.update(sql, userId);
+        } finally {
+            userCache.invalidate(userId);
+        }
     }
 
-    // this helper method turns SQL query into a user object 
-    private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
-        User user = new User(); // the user object
-        // fields for the ResultSet
-        user.setUserID(rs.getInt("userID"));
-        user.setUsername(rs.getString("username"));
-        user.setName(rs.getString("name"));
-        user.setPassword(rs.getString("password"));
-        user.setUnitPreference(rs.getString("unitPreference"));
-        user.setDeleted(rs.getBoolean("isDeleted"));
-        return user; // then the populated user object is returned
+    // this method returns the hit, miss and eviction counts of the user cache
+    public CacheStats getCacheStats() {
+        return userCache.getStats();
     }
+
     
-    // this method returns a user by their username 
+    // this method returns a user by their username, from the cache when possible
     public User getUserByUsername(String username) {
+        return userCache.getByUsername(username, this::loadUserByUsername);
+    }
+
+    private User loadUserByUsername(String username) {
         String sql = "SELECT * FROM users WHERE username = ? AND isDeleted = FALSE";
         try {
-            return jdbcTemplate.queryForObject(sql, this::mapRowToUser, username);
+            return jdbcTemplate.queryForObject(sql, new UserRowMapper(), username);
         } catch (EmptyResultDataAccessException e) {
             return null;
         }
@@ -1,7 +1,9 @@
 package com.example.runningapp.exception;
 
 import com.example.runningapp.model.ApiResponse;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
@@ -17,10 +19,30 @@ public class GlobalExceptionHandler {
                 .body(new ApiResponse(false, "Internal server error: " + ex.getMessage(), null));
     }
 
+    // this method handles the password hashing pool being full, the client is told when to try again
+    @ExceptionHandler(HashingBusyException.class)
+    public ResponseEntity<ApiResponse> handleHashingBusy(HashingBusyException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Integer.toString(ex.getRetryAfterSeconds()))
+                .body(new ApiResponse(false, ex.getMessage(), null));
+    }
+
+    // this method handles an unknown name in the ?fields= parameter of a list endpoint
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ResponseEntity<ApiResponse> handleInvalidFields(InvalidFieldsException ex) {
+        return ResponseEntity.badRequest().body(new ApiResponse(false, ex.getMessage(), null));
+    }
+
     // this method handles cases where a database query returns no result, despite expecting one
     @ExceptionHandler(EmptyResultDataAccessException.class)
     public ResponseEntity<ApiResponse> handleNotFoundException() {
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(new ApiResponse(false, "Requested resource not found", null));
     }
+
+    // this method handles a write that lost a race with another write to the same row, the client can send it again
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ApiResponse> handleConcurrencyFailure(ConcurrencyFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse(false, ex.getMessage(), null));
+    }
 }
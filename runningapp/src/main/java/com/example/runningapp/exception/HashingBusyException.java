@@ -0,0 +1,16 @@
+package com.example.runningapp.exception;
+
+//this exception is thrown when the password hashing pool is full, it is turned into a 429 response
+public class HashingBusyException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public HashingBusyException(int retryAfterSeconds) {
+        super("Too many login or registration requests, please try again shortly");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
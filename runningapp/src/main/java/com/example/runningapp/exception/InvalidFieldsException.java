@@ -0,0 +1,9 @@
+package com.example.runningapp.exception;
+
+//this exception is thrown when ?fields= names a field that isn't on the endpoint's whitelist, it is turned into a 400 response
+public class InvalidFieldsException extends RuntimeException {
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.runningapp.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// this annotation is only needed on fields whose column name differs from the field name,
+// or that the application never writes itself (e.g. values the database or another DAO keeps up to date),
+// or that are kept in the model as a plain int instead of the column's own type (see Codec)
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Column {
+
+    // the column name, the field name when empty
+    String name() default "";
+
+    boolean insertable() default true;
+
+    boolean updatable() default true;
+
+    Codec codec() default Codec.NONE;
+
+    // how an int field is stored in a column of another type, so rows don't need an object per value
+    // a NULL column is read as Columns.NULL_INT and Columns.NULL_INT is written as NULL
+    enum Codec {
+        // the field has the column's own type
+        NONE,
+        // a DATE column held as days since 1970-01-01 (LocalDate.toEpochDay)
+        EPOCH_DAY,
+        // a DECIMAL(x,2) column held as hundredths, e.g. 5.37 is 537
+        CENTIS
+    }
+}
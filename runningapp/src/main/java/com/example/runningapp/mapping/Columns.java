@@ -0,0 +1,79 @@
+package com.example.runningapp.mapping;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+
+// this class holds the helpers the generated row mappers call
+public final class Columns {
+
+    // what an int field with a Column.Codec holds when the column is NULL (or the field was never set)
+    public static final int NULL_INT = Integer.MIN_VALUE;
+
+    private Columns() {}
+
+    // finds where each column is in a result set, done once per query instead of a name lookup for every column of every row
+    // columns the query didn't select get index 0 and their fields are left at the default value
+    public static int[] resolve(ResultSet rs, String[] columns) throws SQLException {
+        int[] index = new int[columns.length];
+        ResultSetMetaData meta = rs.getMetaData();
+        for (int c = meta.getColumnCount(); c >= 1; c--) {
+            String label = meta.getColumnLabel(c);
+            for (int f = 0; f < columns.length; f++) {
+                // going backwards means the first column wins when a join returns the same name twice
+                if (columns[f].equalsIgnoreCase(label)) {
+                    index[f] = c;
+                }
+            }
+        }
+        return index;
+    }
+
+    public static LocalDate getLocalDate(ResultSet rs, int index) throws SQLException {
+        Date date = rs.getDate(index);
+        return date != null ? date.toLocalDate() : null;
+    }
+
+    public static Integer getInteger(ResultSet rs, int index) throws SQLException {
+        int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    public static Long getLong(ResultSet rs, int index) throws SQLException {
+        long value = rs.getLong(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    public static int getEpochDay(ResultSet rs, int index) throws SQLException {
+        Date date = rs.getDate(index);
+        return date != null ? (int) date.toLocalDate().toEpochDay() : NULL_INT;
+    }
+
+    public static void setEpochDay(PreparedStatement ps, int index, int epochDay) throws SQLException {
+        if (epochDay == NULL_INT) {
+            ps.setNull(index, Types.DATE);
+        } else {
+            ps.setDate(index, Date.valueOf(LocalDate.ofEpochDay(epochDay)));
+        }
+    }
+
+    // read as a double, a value with 2 decimal places is always within rounding of the exact one so this is exact
+    // (and doesn't build a BigDecimal for every row)
+    public static int getCentis(ResultSet rs, int index) throws SQLException {
+        double value = rs.getDouble(index);
+        return rs.wasNull() ? NULL_INT : Math.toIntExact(Math.round(value * 100));
+    }
+
+    public static void setCentis(PreparedStatement ps, int index, int centis) throws SQLException {
+        if (centis == NULL_INT) {
+            ps.setNull(index, Types.DECIMAL);
+        } else {
+            ps.setBigDecimal(index, BigDecimal.valueOf(centis, 2));
+        }
+    }
+}
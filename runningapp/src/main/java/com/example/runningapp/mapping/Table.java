@@ -0,0 +1,20 @@
+package com.example.runningapp.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// this annotation marks a model class as a row of a database table
+// at compile time a <Model>RowMapper and a <Model>Binder are generated next to the class (see RowMapperProcessor),
+// so the DAOs don't need hand-written mappers or BeanPropertyRowMapper
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Table {
+
+    // the table name used in the generated INSERT and UPDATE statements
+    String name();
+
+    // the auto-increment primary key, it is left out of inserts and used in the WHERE of updates
+    String id();
+}
@@ -0,0 +1,54 @@
+package com.example.runningapp.model;
+
+//this class holds the hit, miss and eviction counts of an in-memory cache
+
+public class CacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private int size;
+
+    // default constructor
+    public CacheStats() {}
+
+    // constructor with all parameters
+    public CacheStats(long hits, long misses, long evictions, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    // getters and setters
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
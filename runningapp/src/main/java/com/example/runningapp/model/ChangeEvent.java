@@ -0,0 +1,47 @@
+package com.example.runningapp.model;
+
+//this class is one change to a user's runs or goals, as pushed down /api/stream/user/{userId}
+//type is e.g. run.created or goal.deleted, id is the run or goal (0 for run.imported and goal.imported, sent once for
+//a bulk import or the metres backfill)
+//version is the user's data version after the change, the same one the list ETags are made from
+
+public class ChangeEvent {
+    private String type;
+    private int id;
+    private long version;
+
+    // default constructor
+    public ChangeEvent() {}
+
+    // constructor with all parameters
+    public ChangeEvent(String type, int id, long version) {
+        this.type = type;
+        this.id = id;
+        this.version = version;
+    }
+
+    // getters and setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
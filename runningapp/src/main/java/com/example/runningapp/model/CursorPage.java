@@ -0,0 +1,47 @@
+package com.example.runningapp.model;
+
+import java.util.List;
+
+//this class represents one page of a keyset-paginated list
+// nextCursor is opaque to the frontend, it is null once the last page has been reached
+
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private int limit;
+
+    // default constructor
+    public CursorPage() {}
+
+    // constructor with all parameters
+    public CursorPage(List<T> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+
+    // getters and setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
@@ -1,20 +1,34 @@
 package com.example.runningapp.model;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 
+import com.example.runningapp.mapping.Column;
+import com.example.runningapp.mapping.Table;
+import com.example.runningapp.util.UnitConverter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 //this modal class represents a run goal for a user (e.g., run 10 km, run 3x/week)
 
 
+@Table(name = "goals", id = "goalID")
 public class Goal {
     private int goalID;
+    @Column(updatable = false) // a goal can't be moved to another user
     private int userID;
     private String goalName;
-    private BigDecimal goalDistance; // nullable
+    private BigDecimal goalDistance; // nullable, in the goal's unit
+    private Integer goalMetres;      // goalDistance in metres, set by GoalDao on every write
     private String  goalFrequency;   // nullable
     private LocalDate targetDate;    // optional
     private String unit;             // km or miles
     private boolean isDeleted;		//softdelete
+    @Column(insertable = false, updatable = false) // kept up to date by RunGoalDao
+    private long progressMetres;      // distance run towards the goal so far, in metres (read only)
+    private long changeSeq;           // the user's change sequence at the last write, set by GoalDao and RunGoalDao
+    @Column(insertable = false, updatable = false) // set by MySQL on every write
+    private Timestamp updatedAt;
 
     
     // default constructor
@@ -79,4 +93,35 @@ public class Goal {
     
     public void setIsDeleted(boolean isDeleted) { 
     	this.isDeleted = isDeleted; }
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Integer getGoalMetres() { 
+    	return goalMetres; }
+    
+    public void setGoalMetres(Integer goalMetres) { 
+    	this.goalMetres = goalMetres; }
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public long getProgressMetres() { 
+    	return progressMetres; }
+    
+    public void setProgressMetres(long progressMetres) { 
+    	this.progressMetres = progressMetres; }
+
+    // the progress in the goal's unit, only worked out when the goal is sent (a missing unit counts as km)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public BigDecimal getProgressTotal() { 
+    	return UnitConverter.fromMetres(progressMetres, unit); }
+
+    public long getChangeSeq() { 
+    	return changeSeq; }
+    
+    public void setChangeSeq(long changeSeq) { 
+    	this.changeSeq = changeSeq; }
+
+    public Timestamp getUpdatedAt() { 
+    	return updatedAt; }
+    
+    public void setUpdatedAt(Timestamp updatedAt) { 
+    	this.updatedAt = updatedAt; }
 }
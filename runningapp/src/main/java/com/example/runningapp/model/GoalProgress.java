@@ -0,0 +1,66 @@
+package com.example.runningapp.model;
+
+import java.math.BigDecimal;
+
+//this class represents how far a user has got towards a distance goal
+
+public class GoalProgress {
+    private int goalID;
+    private BigDecimal goalDistance;
+    private BigDecimal progressTotal;
+    private String unit;
+    private int percentage; // capped at 100
+
+    // default constructor
+    public GoalProgress() {}
+
+    // constructor with all parameters
+    public GoalProgress(int goalID, BigDecimal goalDistance, BigDecimal progressTotal, String unit, int percentage) {
+        this.goalID = goalID;
+        this.goalDistance = goalDistance;
+        this.progressTotal = progressTotal;
+        this.unit = unit;
+        this.percentage = percentage;
+    }
+
+    // getters and setters
+    public int getGoalID() {
+        return goalID;
+    }
+
+    public void setGoalID(int goalID) {
+        this.goalID = goalID;
+    }
+
+    public BigDecimal getGoalDistance() {
+        return goalDistance;
+    }
+
+    public void setGoalDistance(BigDecimal goalDistance) {
+        this.goalDistance = goalDistance;
+    }
+
+    public BigDecimal getProgressTotal() {
+        return progressTotal;
+    }
+
+    public void setProgressTotal(BigDecimal progressTotal) {
+        this.progressTotal = progressTotal;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    public int getPercentage() {
+        return percentage;
+    }
+
+    public void setPercentage(int percentage) {
+        this.percentage = percentage;
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.runningapp.model;
 
+import com.example.runningapp.mapping.Table;
+
+@Table(name = "GoalTypes", id = "goalTypeID")
 public class GoalType {
     private int goalTypeID;
     private double distance;
@@ -0,0 +1,64 @@
+package com.example.runningapp.model;
+
+//this class holds the running totals for one query shape
+
+public class QueryStats {
+    private String sql;
+    private long count;
+    private long errors;
+    private double totalMillis;
+    private double maxMillis;
+
+    // default constructor
+    public QueryStats() {}
+
+    // constructor with all parameters
+    public QueryStats(String sql, long count, long errors, double totalMillis, double maxMillis) {
+        this.sql = sql;
+        this.count = count;
+        this.errors = errors;
+        this.totalMillis = totalMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    // getters and setters
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public void setErrors(long errors) {
+        this.errors = errors;
+    }
+
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(double totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(double maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+}
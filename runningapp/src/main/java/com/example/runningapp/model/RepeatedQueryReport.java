@@ -0,0 +1,67 @@
+package com.example.runningapp.model;
+
+import java.time.Instant;
+import java.util.List;
+
+//this class describes a request that hit the same rows more than once, e.g. a select then an update by the same key
+
+public class RepeatedQueryReport {
+    private Instant time;
+    private String request;
+    private int statementCount;
+    private double totalMillis;
+    private List<String> repeats;   // e.g. "2x runs WHERE runID = ?" followed by the statements involved
+
+    // default constructor
+    public RepeatedQueryReport() {}
+
+    // constructor with all parameters
+    public RepeatedQueryReport(Instant time, String request, int statementCount, double totalMillis, List<String> repeats) {
+        this.time = time;
+        this.request = request;
+        this.statementCount = statementCount;
+        this.totalMillis = totalMillis;
+        this.repeats = repeats;
+    }
+
+    // getters and setters
+    public Instant getTime() {
+        return time;
+    }
+
+    public void setTime(Instant time) {
+        this.time = time;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public void setRequest(String request) {
+        this.request = request;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public void setStatementCount(int statementCount) {
+        this.statementCount = statementCount;
+    }
+
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(double totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    public List<String> getRepeats() {
+        return repeats;
+    }
+
+    public void setRepeats(List<String> repeats) {
+        this.repeats = repeats;
+    }
+}
@@ -1,37 +1,60 @@
 package com.example.runningapp.model;
 
-// big decimal instead of double, initially there was errors in the RunDAO so had to change it to big decimal
-// double didnt allow for deciamls to be stored. whilst big decimal allows for precise decimals
+// the date, distance, duration and speed are kept as plain ints, initially these were Date, BigDecimal and Time
+// but that was four objects per run (and TIME stopped durations at 24 hours). distance and speed are fixed point
+// hundredths so they are still exact to 2 decimals like the DECIMAL columns, without the errors double had
+// the JSON still has runDate, runDistance, runDuration and runSpeed in the same format as before (see the JSON getters)
 
 import java.math.BigDecimal;
-import java.sql.Date;
-import java.sql.Time;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import com.example.runningapp.mapping.Column;
+import com.example.runningapp.mapping.Columns;
+import com.example.runningapp.mapping.Table;
+import com.example.runningapp.util.UnitConverter;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 //this class epresents a running activity record for a user
 
+@Table(name = "runs", id = "runID")
+@JsonPropertyOrder({ "runID", "userID", "runDate", "runDistance", "runDuration", "runSpeed", "unit", "additionalDetails", "isDeleted",
+        "distanceMetres" })
 public class Run {
     private int runID;
+    @Column(updatable = false) // a run can't be moved to another user
     private int userID;
-    private Date runDate;
-    private BigDecimal runDistance;
-    private Time runDuration;
-    private BigDecimal runSpeed;
+    @Column(name = "runDate", codec = Column.Codec.EPOCH_DAY)
+    private int runDay = Columns.NULL_INT; // days since 1970-01-01
+    @Column(name = "runDistance", codec = Column.Codec.CENTIS)
+    private int distanceCentis = Columns.NULL_INT; // hundredths of the run's unit
+    private int distanceMetres; // the same distance in metres, set by RunDao on every write (what the totals add up)
+    private int durationSeconds = Columns.NULL_INT;
+    @Column(name = "runSpeed", codec = Column.Codec.CENTIS)
+    private int speedCentis = Columns.NULL_INT; // hundredths of the unit per hour, NULL_INT when not given
     private String unit;
     private String additionalDetails;
     private boolean isDeleted;
+    private long changeSeq; // the user's change sequence at the last write, set by RunDao (used by the sync endpoint)
+    @Column(insertable = false, updatable = false) // set by MySQL on every write
+    private Timestamp updatedAt;
 
     // default constructor
     public Run() {}
 
  // constructor with all parameters
-    public Run(int runID, int userID, Date runDate, BigDecimal runDistance, Time runDuration,
-               BigDecimal runSpeed, String unit, String additionalDetails, boolean isDeleted) {
+    public Run(int runID, int userID, int runDay, int distanceCentis, int durationSeconds,
+               int speedCentis, String unit, String additionalDetails, boolean isDeleted) {
         this.runID = runID;
         this.userID = userID;
-        this.runDate = runDate;
-        this.runDistance = runDistance;
-        this.runDuration = runDuration;
-        this.runSpeed = runSpeed;
+        this.runDay = runDay;
+        this.distanceCentis = distanceCentis;
+        this.durationSeconds = durationSeconds;
+        this.speedCentis = speedCentis;
         this.unit = unit;
         this.additionalDetails = additionalDetails;
         this.isDeleted = isDeleted;
@@ -54,36 +77,50 @@ public class Run {
         this.userID = userID;
     }
 
-    public Date getRunDate() {
-        return runDate;
+    @JsonIgnore
+    public int getRunDay() {
+        return runDay;
     }
 
-    public void setRunDate(Date runDate) {
-        this.runDate = runDate;
+    public void setRunDay(int runDay) {
+        this.runDay = runDay;
     }
 
-    public BigDecimal getRunDistance() {
-        return runDistance;
+    @JsonIgnore
+    public int getDistanceCentis() {
+        return distanceCentis;
     }
 
-    public void setRunDistance(BigDecimal runDistance) {
-        this.runDistance = runDistance;
+    public void setDistanceCentis(int distanceCentis) {
+        this.distanceCentis = distanceCentis;
     }
 
-    public Time getRunDuration() {
-        return runDuration;
+    @JsonIgnore
+    public int getDurationSeconds() {
+        return durationSeconds;
     }
 
-    public void setRunDuration(Time runDuration) {
-        this.runDuration = runDuration;
+    public void setDurationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
     }
 
-    public BigDecimal getRunSpeed() {
-        return runSpeed;
+    @JsonIgnore
+    public int getSpeedCentis() {
+        return speedCentis;
     }
 
-    public void setRunSpeed(BigDecimal runSpeed) {
-        this.runSpeed = runSpeed;
+    public void setSpeedCentis(int speedCentis) {
+        this.speedCentis = speedCentis;
+    }
+
+    // sent so clients can add up runs of different units, but always worked out from runDistance and unit
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public int getDistanceMetres() {
+        return distanceMetres;
+    }
+
+    public void setDistanceMetres(int distanceMetres) {
+        this.distanceMetres = distanceMetres;
     }
 
     public String getUnit() {
@@ -109,4 +146,68 @@ public class Run {
     public void setIsDeleted(boolean isDeleted) {
         this.isDeleted = isDeleted;
     }
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+ // the JSON getters and setters, these keep the API the same as when the fields were Date, BigDecimal and Time
+    // (yyyy-MM-dd, 5.37, HH:mm:ss), the values are only built while a response is written, a missing value is null
+    @JsonProperty("runDate")
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    public LocalDate getRunDate() {
+        return runDay == Columns.NULL_INT ? null : LocalDate.ofEpochDay(runDay);
+    }
+
+    @JsonProperty("runDate")
+    public void setRunDate(LocalDate runDate) {
+        this.runDay = runDate == null ? Columns.NULL_INT : (int) runDate.toEpochDay();
+    }
+
+    @JsonProperty("runDistance")
+    public BigDecimal getRunDistance() {
+        return distanceCentis == Columns.NULL_INT ? null : BigDecimal.valueOf(distanceCentis, 2);
+    }
+
+    @JsonProperty("runDistance")
+    public void setRunDistance(BigDecimal runDistance) {
+        this.distanceCentis = toCentis(runDistance);
+    }
+
+    @JsonProperty("runDuration")
+    public String getRunDuration() {
+        return durationSeconds == Columns.NULL_INT ? null : UnitConverter.formatDuration(durationSeconds);
+    }
+
+    @JsonProperty("runDuration")
+    public void setRunDuration(String runDuration) {
+        this.durationSeconds = runDuration == null ? Columns.NULL_INT : UnitConverter.parseDuration(runDuration);
+    }
+
+    @JsonProperty("runSpeed")
+    public BigDecimal getRunSpeed() {
+        return speedCentis == Columns.NULL_INT ? null : BigDecimal.valueOf(speedCentis, 2);
+    }
+
+    @JsonProperty("runSpeed")
+    public void setRunSpeed(BigDecimal runSpeed) {
+        this.speedCentis = toCentis(runSpeed);
+    }
+
+    // rounds to 2 decimal places like the DECIMAL columns did
+    private static int toCentis(BigDecimal value) {
+        return value == null ? Columns.NULL_INT : value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValueExact();
+    }
 }
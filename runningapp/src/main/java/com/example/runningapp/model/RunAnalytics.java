@@ -0,0 +1,90 @@
+package com.example.runningapp.model;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+//this class represents the figures across every user's runs for a date range, worked out from the analytics snapshot
+// distanceBuckets[i] is the number of runs with a distance from i * bucketMetres up to (i + 1) * bucketMetres,
+// the last bucket also holds every run longer than that
+
+public class RunAnalytics {
+    private Timestamp snapshotTakenAt;
+    private LocalDate from;
+    private LocalDate to;
+    private int activeUsers;
+    private RunSummary totals;
+    private int bucketMetres;
+    private long[] distanceBuckets;
+
+    // default constructor
+    public RunAnalytics() {}
+
+    // constructor with all parameters
+    public RunAnalytics(Timestamp snapshotTakenAt, LocalDate from, LocalDate to, int activeUsers,
+                        RunSummary totals, int bucketMetres, long[] distanceBuckets) {
+        this.snapshotTakenAt = snapshotTakenAt;
+        this.from = from;
+        this.to = to;
+        this.activeUsers = activeUsers;
+        this.totals = totals;
+        this.bucketMetres = bucketMetres;
+        this.distanceBuckets = distanceBuckets;
+    }
+
+    // getters and setters
+    public Timestamp getSnapshotTakenAt() {
+        return snapshotTakenAt;
+    }
+
+    public void setSnapshotTakenAt(Timestamp snapshotTakenAt) {
+        this.snapshotTakenAt = snapshotTakenAt;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public int getActiveUsers() {
+        return activeUsers;
+    }
+
+    public void setActiveUsers(int activeUsers) {
+        this.activeUsers = activeUsers;
+    }
+
+    public RunSummary getTotals() {
+        return totals;
+    }
+
+    public void setTotals(RunSummary totals) {
+        this.totals = totals;
+    }
+
+    public int getBucketMetres() {
+        return bucketMetres;
+    }
+
+    public void setBucketMetres(int bucketMetres) {
+        this.bucketMetres = bucketMetres;
+    }
+
+    public long[] getDistanceBuckets() {
+        return distanceBuckets;
+    }
+
+    public void setDistanceBuckets(long[] distanceBuckets) {
+        this.distanceBuckets = distanceBuckets;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.runningapp.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//this class is the response of the bulk run import
+// runIDs holds the generated ID of every run that was inserted, in the order they were sent,
+// errors holds the position and reason of every run that was rejected
+
+public class RunBatchResult {
+    private List<Integer> runIDs = new ArrayList<>();
+    private List<RowError> errors = new ArrayList<>();
+
+    // default constructor
+    public RunBatchResult() {}
+
+    // getters and setters
+    public List<Integer> getRunIDs() {
+        return runIDs;
+    }
+
+    public void setRunIDs(List<Integer> runIDs) {
+        this.runIDs = runIDs;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    // one rejected run, index is its position in the request list
+    public static class RowError {
+        private int index;
+        private String message;
+
+        public RowError() {}
+
+        public RowError(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -1,18 +1,21 @@
 package com.example.runningapp.model;
 
+import com.example.runningapp.mapping.Table;
+
+@Table(name = "rungoals", id = "runGoalID")
 public class RunGoal {
     private int runGoalID;
     private int runID;
     private int goalID;
-    private double contributionQuantity;
+    private int contributionMetres;
 
     public RunGoal() {}
 
-    public RunGoal(int runGoalID, int runID, int goalID, double contributionQuantity) {
+    public RunGoal(int runGoalID, int runID, int goalID, int contributionMetres) {
         this.runGoalID = runGoalID;
         this.runID = runID;
         this.goalID = goalID;
-        this.contributionQuantity = contributionQuantity;
+        this.contributionMetres = contributionMetres;
     }
 
     public int getRunGoalID() {
@@ -39,11 +42,11 @@ public class RunGoal {
         this.goalID = goalID;
     }
 
-    public double getContributionQuantity() {
-        return contributionQuantity;
+    public int getContributionMetres() {
+        return contributionMetres;
     }
 
-    public void setContributionQuantity(double contributionQuantity) {
-        this.contributionQuantity = contributionQuantity;
+    public void setContributionMetres(int contributionMetres) {
+        this.contributionMetres = contributionMetres;
     }
 }
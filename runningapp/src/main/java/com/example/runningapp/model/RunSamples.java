@@ -0,0 +1,56 @@
+package com.example.runningapp.model;
+
+//this class represents the per-second samples recorded during a run, as parallel arrays
+// e.g. elapsedSeconds[i], distanceMetres[i] and paceSecondsPerKm[i] all belong to the same moment
+// distance is cumulative from the start, pace is 0 while stopped
+
+public class RunSamples {
+    private int runID;
+    private int[] elapsedSeconds;
+    private double[] distanceMetres;
+    private double[] paceSecondsPerKm;
+
+    // default constructor
+    public RunSamples() {}
+
+    // constructor with all parameters
+    public RunSamples(int runID, int[] elapsedSeconds, double[] distanceMetres, double[] paceSecondsPerKm) {
+        this.runID = runID;
+        this.elapsedSeconds = elapsedSeconds;
+        this.distanceMetres = distanceMetres;
+        this.paceSecondsPerKm = paceSecondsPerKm;
+    }
+
+    // getters and setters
+    public int getRunID() {
+        return runID;
+    }
+
+    public void setRunID(int runID) {
+        this.runID = runID;
+    }
+
+    public int[] getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    public void setElapsedSeconds(int[] elapsedSeconds) {
+        this.elapsedSeconds = elapsedSeconds;
+    }
+
+    public double[] getDistanceMetres() {
+        return distanceMetres;
+    }
+
+    public void setDistanceMetres(double[] distanceMetres) {
+        this.distanceMetres = distanceMetres;
+    }
+
+    public double[] getPaceSecondsPerKm() {
+        return paceSecondsPerKm;
+    }
+
+    public void setPaceSecondsPerKm(double[] paceSecondsPerKm) {
+        this.paceSecondsPerKm = paceSecondsPerKm;
+    }
+}
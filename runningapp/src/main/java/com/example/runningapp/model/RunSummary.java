@@ -0,0 +1,86 @@
+package com.example.runningapp.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+//this class represents the totals of a user's runs for one day, week or month
+// used for the homepage chart so the frontend doesnt have to add up every run itself
+// the totals are added up in metres, totalDistance and averageSpeed are in the unit the API was asked for (unit)
+
+public class RunSummary {
+    private LocalDate periodStart;
+    private long totalDistanceMetres;
+    private BigDecimal totalDistance;
+    private String unit;
+    private long totalDurationSeconds;
+    private int runCount;
+    private BigDecimal averageSpeed; // total distance / total hours, zero when there are no runs
+
+    // default constructor
+    public RunSummary() {}
+
+    // constructor with the totals, the unit values are filled in by RunAPI
+    public RunSummary(LocalDate periodStart, long totalDistanceMetres, long totalDurationSeconds, int runCount) {
+        this.periodStart = periodStart;
+        this.totalDistanceMetres = totalDistanceMetres;
+        this.totalDurationSeconds = totalDurationSeconds;
+        this.runCount = runCount;
+    }
+
+    // getters and setters
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public long getTotalDistanceMetres() {
+        return totalDistanceMetres;
+    }
+
+    public void setTotalDistanceMetres(long totalDistanceMetres) {
+        this.totalDistanceMetres = totalDistanceMetres;
+    }
+
+    public BigDecimal getTotalDistance() {
+        return totalDistance;
+    }
+
+    public void setTotalDistance(BigDecimal totalDistance) {
+        this.totalDistance = totalDistance;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    public long getTotalDurationSeconds() {
+        return totalDurationSeconds;
+    }
+
+    public void setTotalDurationSeconds(long totalDurationSeconds) {
+        this.totalDurationSeconds = totalDurationSeconds;
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    public void setRunCount(int runCount) {
+        this.runCount = runCount;
+    }
+
+    public BigDecimal getAverageSpeed() {
+        return averageSpeed;
+    }
+
+    public void setAverageSpeed(BigDecimal averageSpeed) {
+        this.averageSpeed = averageSpeed;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.runningapp.model;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+//this class is one entry of the slow query log, with the EXPLAIN plan MySQL gave for it
+
+public class SlowQuery {
+    private Instant time;
+    private String request;   // e.g. PUT /api/runs/5, null when not run for a request
+    private String sql;   // with literals replaced by ?
+    private List<String> parameterTypes;   // the bind parameter types, not the values
+    private double millis;
+    private List<Map<String, Object>> explain;   // one map per EXPLAIN row, null if it couldn't be run
+    private String explainError;
+
+    // default constructor
+    public SlowQuery() {}
+
+    // constructor with all parameters
+    public SlowQuery(Instant time, String request, String sql, List<String> parameterTypes, double millis, List<Map<String, Object>> explain, String explainError) {
+        this.time = time;
+        this.request = request;
+        this.sql = sql;
+        this.parameterTypes = parameterTypes;
+        this.millis = millis;
+        this.explain = explain;
+        this.explainError = explainError;
+    }
+
+    // getters and setters
+    public Instant getTime() {
+        return time;
+    }
+
+    public void setTime(Instant time) {
+        this.time = time;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public void setRequest(String request) {
+        this.request = request;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public List<String> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public void setParameterTypes(List<String> parameterTypes) {
+        this.parameterTypes = parameterTypes;
+    }
+
+    public double getMillis() {
+        return millis;
+    }
+
+    public void setMillis(double millis) {
+        this.millis = millis;
+    }
+
+    public List<Map<String, Object>> getExplain() {
+        return explain;
+    }
+
+    public void setExplain(List<Map<String, Object>> explain) {
+        this.explain = explain;
+    }
+
+    public String getExplainError() {
+        return explainError;
+    }
+
+    public void setExplainError(String explainError) {
+        this.explainError = explainError;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.runningapp.model;
+
+import java.util.List;
+
+//this class is what /api/sync returns: the runs and goals changed after the client's watermark
+//runs and goals are the rows added or changed (upserts), the deleted lists are the IDs of rows soft-deleted since (tombstones)
+//next is the watermark to send next time, more is true when not everything fitted and the client should ask again now
+
+public class SyncChanges {
+    private long since;
+    private long next;
+    private boolean more;
+    private List<Run> runs;
+    private List<Integer> deletedRunIDs;
+    private List<Goal> goals;
+    private List<Integer> deletedGoalIDs;
+
+    // default constructor
+    public SyncChanges() {}
+
+    // constructor with all parameters
+    public SyncChanges(long since, long next, boolean more, List<Run> runs, List<Integer> deletedRunIDs,
+                       List<Goal> goals, List<Integer> deletedGoalIDs) {
+        this.since = since;
+        this.next = next;
+        this.more = more;
+        this.runs = runs;
+        this.deletedRunIDs = deletedRunIDs;
+        this.goals = goals;
+        this.deletedGoalIDs = deletedGoalIDs;
+    }
+
+    // getters and setters
+    public long getSince() {
+        return since;
+    }
+
+    public void setSince(long since) {
+        this.since = since;
+    }
+
+    public long getNext() {
+        return next;
+    }
+
+    public void setNext(long next) {
+        this.next = next;
+    }
+
+    public boolean isMore() {
+        return more;
+    }
+
+    public void setMore(boolean more) {
+        this.more = more;
+    }
+
+    public List<Run> getRuns() {
+        return runs;
+    }
+
+    public void setRuns(List<Run> runs) {
+        this.runs = runs;
+    }
+
+    public List<Integer> getDeletedRunIDs() {
+        return deletedRunIDs;
+    }
+
+    public void setDeletedRunIDs(List<Integer> deletedRunIDs) {
+        this.deletedRunIDs = deletedRunIDs;
+    }
+
+    public List<Goal> getGoals() {
+        return goals;
+    }
+
+    public void setGoals(List<Goal> goals) {
+        this.goals = goals;
+    }
+
+    public List<Integer> getDeletedGoalIDs() {
+        return deletedGoalIDs;
+    }
+
+    public void setDeletedGoalIDs(List<Integer> deletedGoalIDs) {
+        this.deletedGoalIDs = deletedGoalIDs;
+    }
+}
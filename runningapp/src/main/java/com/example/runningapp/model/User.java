@@ -1,13 +1,17 @@
 package com.example.runningapp.model;
 
+import com.example.runningapp.mapping.Column;
+import com.example.runningapp.mapping.Table;
 
 // this class represents a user of the running appv
+@Table(name = "users", id = "userID")
 public class User {
     private int userID;
     private String username;
     private String name;
     private String password;
     private String unitPreference;
+    @Column(insertable = false, updatable = false) // only changed by the soft delete and restore methods
     private boolean isDeleted;
     
     // default constructor
@@ -0,0 +1,39 @@
+package com.example.runningapp.util;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+// this class is a bcrypt encoder that knows its own cost factor
+// a bcrypt hash carries the cost it was made with (the 12 in $2a$12$...), and matches() works for any cost,
+// so hashes made with an older cost keep working and can be swapped for a new one the next time the user logs in
+public class CalibratedPasswordEncoder extends BCryptPasswordEncoder {
+
+    private final int strength;
+
+    public CalibratedPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    // true when the stored hash was made with a different cost than the current one (higher or lower)
+    public boolean needsRehash(String encodedPassword) {
+        int cost = costOf(encodedPassword);
+        return cost > 0 && cost != strength;
+    }
+
+    // reads the cost out of a $2a$/$2b$/$2y$ hash, -1 if it isn't one
+    static int costOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$'
+                || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
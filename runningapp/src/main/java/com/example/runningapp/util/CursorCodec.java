@@ -0,0 +1,81 @@
+package com.example.runningapp.util;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Base64;
+
+// this class turns the last row of a page into an opaque cursor string and back again
+// the frontend just hands the cursor back, so the key format can change without breaking it
+public final class CursorCodec {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private CursorCodec() {}
+
+    // keeps the requested page size between 1 and the cap
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // cursor for lists ordered by (runDate, runID)
+    public static String encodeRunCursor(LocalDate runDate, int runID) {
+        return encode(runDate.toString() + "|" + runID);
+    }
+
+    // cursor for lists ordered by a single id (goals)
+    public static String encodeIdCursor(int id) {
+        return encode(Integer.toString(id));
+    }
+
+    // returns the runDate part of a run cursor, throws IllegalArgumentException if the cursor is malformed
+    public static Date decodeRunDate(String cursor) {
+        String[] parts = splitRunCursor(cursor);
+        return Date.valueOf(parts[0]);
+    }
+
+    // returns the runID part of a run cursor
+    public static int decodeRunId(String cursor) {
+        String[] parts = splitRunCursor(cursor);
+        return Integer.parseInt(parts[1]);
+    }
+
+    // returns the id from an id cursor
+    public static int decodeId(String cursor) {
+        try {
+            return Integer.parseInt(decode(cursor));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String[] splitRunCursor(String cursor) {
+        String[] parts = decode(cursor).split("\\|");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            Date.valueOf(parts[0]);
+            Integer.parseInt(parts[1]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return parts;
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
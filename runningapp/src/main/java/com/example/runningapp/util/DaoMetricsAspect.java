@@ -0,0 +1,63 @@
+package com.example.runningapp.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// this class times every public DAO method, so a slow query shows up against the method that ran it
+// the timers are published as dao.calls{dao, method, outcome} with histogram buckets, so percentiles can be worked out
+// from the prometheus scrape. Each method's two timers are looked up once and kept, so a call only costs a map read
+@Aspect
+@Component
+public class DaoMetricsAspect {
+
+    private final MeterRegistry registry;
+    private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public DaoMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("within(com.example.runningapp.dao..*) && execution(public * *(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timer[] methodTimers = timers.computeIfAbsent(method, this::register);
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            success = true;
+            return result;
+        } finally {
+            methodTimers[success ? 0 : 1].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // overloads share a timer, the tags only carry the name
+    private Timer[] register(Method method) {
+        return new Timer[] { timer(method, "success"), timer(method, "error") };
+    }
+
+    private Timer timer(Method method, String outcome) {
+        return Timer.builder("dao.calls")
+                .description("Time taken by DAO methods")
+                .tag("dao", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+}
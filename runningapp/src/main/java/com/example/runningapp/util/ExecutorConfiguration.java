@@ -0,0 +1,70 @@
+package com.example.runningapp.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+// this class creates the thread pools used for heavier work outside of the request threads
+@Configuration
+public class ExecutorConfiguration {
+
+	// spring boot only creates its default pool when no other executor bean exists,
+	// so it is declared here as well, it is still used for async requests such as the run export
+	@Bean(name = { "applicationTaskExecutor", "taskExecutor" })
+	@ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+	// in virtual thread mode the builder gives each async request its own virtual thread, as boot's default would
+	@Bean(name = { "applicationTaskExecutor", "taskExecutor" })
+	@ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor applicationTaskExecutorVirtualThreads(SimpleAsyncTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+	// GPX files are parsed on this pool, one thread per core since parsing is CPU bound
+	// when the queue is full the request thread parses the file itself, which slows down big uploads instead of failing them
+	@Bean
+    public ThreadPoolTaskExecutor gpxImportExecutor() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cores);
+        executor.setMaxPoolSize(cores);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("gpx-import-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+	// writes the queued server-sent events out to the open streams (UserChangeStream)
+	// each task drains one connection, a connection only has one task at a time so the queue holds at most one per stream
+	// a send to a client that stops reading blocks its thread until tomcat's write timeout (server.tomcat.connection-timeout),
+	// so the pool is big enough that a few stuck sockets don't hold up every other stream
+	@Bean
+	@ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor streamExecutor(@Value("${runningapp.stream.threads:32}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("sse-");
+        return executor;
+    }
+
+	// in virtual thread mode each drain gets its own virtual thread, a blocked send then only parks that one
+	@Bean(name = "streamExecutor")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor streamExecutorVirtualThreads() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("sse-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
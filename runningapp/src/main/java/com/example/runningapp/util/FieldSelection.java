@@ -0,0 +1,138 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.exception.InvalidFieldsException;
+import com.example.runningapp.model.CursorPage;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// this class handles the ?fields= parameter of the list endpoints, e.g. ?fields=runID,runDate,runDistance
+// the names are checked against a whitelist of JSON field -> column, which gives both the SELECT column list
+// (only whitelisted column names ever reach the SQL) and the fields kept when the rows are sent back
+public final class FieldSelection {
+
+    private final List<String> fields;
+    private final String columns;
+    // only used while the response is written, which happens on one thread
+    private Class<?> writersType;
+    private PropertyWriter[] writers;
+
+    private FieldSelection(List<String> fields, String columns) {
+        this.fields = fields;
+        this.columns = columns;
+    }
+
+    // returns null when no fields were asked for, which means the full objects as before
+    // key columns are always selected (paging and the row mappers need them) but only sent back if they were asked for
+    public static FieldSelection parse(String fields, Map<String, String> whitelist, String... keyColumns) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!whitelist.containsKey(name)) {
+                throw new InvalidFieldsException("Unknown field: " + name);
+            }
+            requested.add(name);
+        }
+        if (requested.isEmpty()) {
+            return null;
+        }
+
+        Set<String> columns = new LinkedHashSet<>(List.of(keyColumns));
+        for (String name : requested) {
+            columns.add(whitelist.get(name));
+        }
+        return new FieldSelection(List.copyOf(requested), String.join(", ", columns));
+    }
+
+    // the column list for the SELECT
+    public String getColumns() {
+        return columns;
+    }
+
+    // wraps each object so only the requested fields are written, in the order they were asked for
+    // each field is written by the object's own bean serializer property, so dates etc. look the same as in full
+    // responses, and nothing else of the object is serialized or copied into a map first
+    public List<Row> project(List<?> items) {
+        List<Row> projected = new ArrayList<>(items.size());
+        for (Object item : items) {
+            projected.add(new Row(item));
+        }
+        return projected;
+    }
+
+    public CursorPage<Row> project(CursorPage<?> page) {
+        return new CursorPage<>(project(page.getItems()), page.getNextCursor(), page.getLimit());
+    }
+
+    // the bean properties for the requested fields, looked up once per class (a list is all one class)
+    // a requested field the class has no property for is written as null, like a missing map entry was
+    private PropertyWriter[] writersFor(Class<?> type, SerializerProvider provider) throws IOException {
+        if (type != writersType) {
+            Map<String, PropertyWriter> byName = new HashMap<>();
+            Iterator<PropertyWriter> properties = provider.findValueSerializer(type).properties();
+            while (properties.hasNext()) {
+                PropertyWriter property = properties.next();
+                byName.put(property.getName(), property);
+            }
+            PropertyWriter[] found = new PropertyWriter[fields.size()];
+            for (int i = 0; i < found.length; i++) {
+                found[i] = byName.get(fields.get(i));
+            }
+            writers = found;
+            writersType = type;
+        }
+        return writers;
+    }
+
+    // one projected object, sent as a JSON object with just the selected fields
+    public final class Row implements JsonSerializable {
+        private final Object item;
+
+        private Row(Object item) {
+            this.item = item;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+            PropertyWriter[] found = writersFor(item.getClass(), provider);
+            gen.writeStartObject(item);
+            for (int i = 0; i < found.length; i++) {
+                if (found[i] == null) {
+                    gen.writeNullField(fields.get(i));
+                    continue;
+                }
+                try {
+                    found[i].serializeAsField(item, gen, provider);
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw JsonMappingException.from(provider, "Could not write field " + fields.get(i), e);
+                }
+            }
+            gen.writeEndObject();
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+            serialize(gen, provider);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.runningapp.util;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+// this class reads a GPX file and works out the distance and moving time of its track
+// StAX is used so the file is read point by point and never held in memory as a whole document
+public final class GpxParser {
+
+    private static final double EARTH_RADIUS_METRES = 6_371_008.8;
+
+    // slower than this between two points counts as stopped (e.g. waiting at a crossing)
+    private static final double MOVING_SPEED_METRES_PER_SECOND = 0.5;
+
+    private static final XMLInputFactory XML_FACTORY = createFactory();
+
+    private GpxParser() {}
+
+    // the totals worked out from one track
+    public static class GpxTrack {
+        private final String name;
+        private final double distanceMetres;
+        private final long movingSeconds;
+        private final Instant startTime;
+
+        public GpxTrack(String name, double distanceMetres, long movingSeconds, Instant startTime) {
+            this.name = name;
+            this.distanceMetres = distanceMetres;
+            this.movingSeconds = movingSeconds;
+            this.startTime = startTime;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getDistanceMetres() {
+            return distanceMetres;
+        }
+
+        public long getMovingSeconds() {
+            return movingSeconds;
+        }
+
+        public Instant getStartTime() {
+            return startTime;
+        }
+    }
+
+    // throws IllegalArgumentException when the file isn't valid GPX or has no timed track points
+    public static GpxTrack parse(InputStream in) {
+        String name = null;
+        double distance = 0;
+        long movingSeconds = 0;
+        Instant startTime = null;
+
+        // previous and current point, the current one is only complete once its </trkpt> is reached
+        boolean hasPrevious = false;
+        double prevLat = 0, prevLon = 0;
+        Instant prevTime = null;
+        double lat = 0, lon = 0;
+        Instant time = null;
+        boolean inPoint = false;
+        boolean inTrack = false;
+        int points = 0;
+
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_FACTORY.createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                int event = reader.next();
+                // GPX has no DTD, a file with a DOCTYPE is refused rather than parsed without its entities
+                if (event == XMLStreamConstants.DTD) {
+                    throw new IllegalArgumentException("Not a valid GPX file");
+                }
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String element = reader.getLocalName();
+                    if (element.equals("trk")) {
+                        inTrack = true;
+                    } else if (element.equals("trkpt")) {
+                        lat = Double.parseDouble(reader.getAttributeValue(null, "lat"));
+                        lon = Double.parseDouble(reader.getAttributeValue(null, "lon"));
+                        time = null;
+                        inPoint = true;
+                    } else if (element.equals("time") && inPoint) {
+                        time = parseTime(reader.getElementText());
+                    } else if (element.equals("name") && inTrack && !inPoint && name == null) {
+                        name = reader.getElementText().trim();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String element = reader.getLocalName();
+                    if (element.equals("trkpt")) {
+                        inPoint = false;
+                        points++;
+                        if (hasPrevious) {
+                            double segment = haversine(prevLat, prevLon, lat, lon);
+                            distance += segment;
+                            if (prevTime != null && time != null) {
+                                long seconds = time.getEpochSecond() - prevTime.getEpochSecond();
+                                if (seconds > 0 && segment / seconds >= MOVING_SPEED_METRES_PER_SECOND) {
+                                    movingSeconds += seconds;
+                                }
+                            }
+                        }
+                        if (startTime == null && time != null) {
+                            startTime = time;
+                        }
+                        prevLat = lat;
+                        prevLon = lon;
+                        prevTime = time;
+                        hasPrevious = true;
+                    } else if (element.equals("trk")) {
+                        inTrack = false;
+                    }
+                }
+            }
+        } catch (XMLStreamException | NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("Not a valid GPX file");
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // nothing else to do
+                }
+            }
+        }
+
+        if (points < 2) {
+            throw new IllegalArgumentException("GPX file has no track to import");
+        }
+        if (startTime == null || movingSeconds == 0) {
+            throw new IllegalArgumentException("GPX track has no timestamps");
+        }
+        return new GpxTrack(name, distance, movingSeconds, startTime);
+    }
+
+    // great-circle distance between two points in metres
+    static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METRES * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static Instant parseTime(String text) {
+        try {
+            return OffsetDateTime.parse(text.trim()).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // DTDs and external entities are switched off so an uploaded file can't read files from the server
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
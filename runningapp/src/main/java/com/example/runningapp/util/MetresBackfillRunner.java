@@ -0,0 +1,30 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.dao.MetresBackfillDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// this class fills in the metres columns of old runs and goals when the app is started with --backfill-metres
+// e.g. java -jar runningapp.jar --backfill-metres --rebuild-rollups
+// it runs before the rollup rebuild, which adds up runs.distanceMetres
+@Component
+@Order(1)
+public class MetresBackfillRunner implements ApplicationRunner {
+
+    @Autowired
+    private MetresBackfillDao metresBackfillDao;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("backfill-metres")) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long runs = metresBackfillDao.backfillRuns();
+        long goals = metresBackfillDao.backfillGoals();
+        System.out.println("Backfilled metres for " + runs + " runs and " + goals + " goals (" + (System.currentTimeMillis() - start) + " ms)");
+    }
+}
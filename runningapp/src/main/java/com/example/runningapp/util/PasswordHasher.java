@@ -0,0 +1,105 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.exception.HashingBusyException;
+import com.example.runningapp.model.HashingStats;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// this class runs bcrypt on its own small pool instead of on the web server's request threads
+// bcrypt is slow on purpose, so a burst of logins would otherwise use up every request thread and stall cheap GETs
+// the pool has one thread per core and a bounded queue, once that is full new requests fail straight away
+// with HashingBusyException (a 429) rather than waiting
+@Component
+public class PasswordHasher implements DisposableBean {
+
+    private final CalibratedPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final int retryAfterSeconds;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong hashCount = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    @Autowired
+    public PasswordHasher(CalibratedPasswordEncoder passwordEncoder,
+                          @Value("${runningapp.hashing.queue-capacity:0}") int queueCapacity,
+                          @Value("${runningapp.hashing.retry-after-seconds:1}") int retryAfterSeconds) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.passwordEncoder = passwordEncoder;
+        // by default the queue holds a few hashes per core, enough to absorb short bursts
+        this.queueCapacity = queueCapacity > 0 ? queueCapacity : cores * 4;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(cores, cores, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // hashes a new password
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // checks a password against a stored hash
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // true when a stored hash was made with a different cost than the one currently in use
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.needsRehash(encodedPassword);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timed(task), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new HashingBusyException(retryAfterSeconds);
+        }
+    }
+
+    private <T> T timed(Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            hashCount.incrementAndGet();
+            totalHashNanos.addAndGet(elapsed);
+            maxHashNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    public HashingStats getStats() {
+        long count = hashCount.get();
+        double average = count == 0 ? 0 : totalHashNanos.get() / (double) count / 1_000_000;
+        return new HashingStats(executor.getPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                queueCapacity, executor.getCompletedTaskCount(), rejected.get(),
+                average, maxHashNanos.get() / 1_000_000.0);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.runningapp.util;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// this class watches for virtual threads getting pinned to their carrier thread
+// a virtual thread that blocks inside a synchronized block can't be unmounted, so it ties up one of the few carrier
+// threads. The MySQL driver locks with synchronized in a lot of places, so this is where it is most likely to happen.
+// the JVM reports these as jdk.VirtualThreadPinned flight recorder events, which are counted and logged here
+public class PinningMonitor implements InitializingBean, DisposableBean {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_LOGGED = 20;
+
+    private final Duration threshold;
+    private final AtomicLong pinnedCount = new AtomicLong();
+    private final AtomicLong driverPinnedCount = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+    private RecordingStream stream;
+
+    public PinningMonitor(Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        long count = pinnedCount.incrementAndGet();
+        pinnedNanos.addAndGet(event.getDuration().toNanos());
+
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        boolean inDriver = frames.stream().anyMatch(f -> f.getMethod().getType().getName().startsWith("com.mysql."));
+        if (inDriver) {
+            driverPinnedCount.incrementAndGet();
+        }
+
+        // only the first few are printed so a pinned hot path doesn't flood the log
+        if (count <= MAX_LOGGED) {
+            StringBuilder message = new StringBuilder("VIRTUAL THREAD PINNED for " + event.getDuration().toMillis() + " ms"
+                    + (inDriver ? " in the MySQL driver" : "") + ":");
+            frames.stream().limit(8).forEach(f -> message.append("\n    at ")
+                    .append(f.getMethod().getType().getName()).append('.').append(f.getMethod().getName())
+                    .append(':').append(f.getLineNumber()));
+            System.out.println(message);
+        }
+    }
+
+    public long getPinnedCount() {
+        return pinnedCount.get();
+    }
+
+    public long getDriverPinnedCount() {
+        return driverPinnedCount.get();
+    }
+
+    public long getPinnedMillis() {
+        return pinnedNanos.get() / 1_000_000;
+    }
+
+    @Override
+    public void destroy() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
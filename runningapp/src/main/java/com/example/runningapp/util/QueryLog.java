@@ -0,0 +1,282 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.model.QueryStats;
+import com.example.runningapp.model.RepeatedQueryReport;
+import com.example.runningapp.model.SlowQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// this class keeps what the query log (QueryLogDataSource) sees, in memory only:
+// - totals per query shape (the SQL with literals replaced by ?)
+// - the most recent slow queries, with the EXPLAIN plan MySQL gave for them
+// - the most recent requests that read or wrote the same rows more than once
+// it is always there so the diagnostics endpoints work, but stays empty unless runningapp.query-log.enabled=true
+@Component
+public class QueryLog {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN \\((?:\\?, )+\\?\\)");
+    private static final Pattern FOR_UPDATE = Pattern.compile("(?i) FOR UPDATE$");
+    private static final Pattern TARGET = Pattern.compile(
+            "(?i)^(?:SELECT .*? FROM|UPDATE|DELETE FROM|INSERT INTO|REPLACE INTO) (\\w+)(?:.*? WHERE (.+?))?(?: GROUP BY .*| ORDER BY .*| LIMIT .*)?$");
+    private static final Pattern EXPLAINABLE = Pattern.compile("(?i)^(SELECT|UPDATE|DELETE|INSERT|REPLACE)\\b");
+
+    private final long slowNanos;
+    private final int capacity;
+    private final long explainIntervalMillis;
+
+    private final Map<String, ShapeTotals> totals = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastExplained = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private final Deque<RepeatedQueryReport> repeatedQueries = new ArrayDeque<>();
+    private final ThreadLocal<RequestQueries> currentRequest = new ThreadLocal<>();
+
+    public QueryLog(@Value("${runningapp.query-log.slow-ms:100}") long slowMillis,
+                    @Value("${runningapp.query-log.capacity:500}") int capacity,
+                    @Value("${runningapp.query-log.explain-interval-ms:60000}") long explainIntervalMillis) {
+        this.slowNanos = slowMillis * 1_000_000;
+        this.capacity = capacity;
+        this.explainIntervalMillis = explainIntervalMillis;
+    }
+
+    // called by the request filter around each request, statements run on other threads aren't tied to it
+    void beginRequest(String request) {
+        currentRequest.set(new RequestQueries(request));
+    }
+
+    void endRequest() {
+        RequestQueries request = currentRequest.get();
+        currentRequest.remove();
+        if (request == null) {
+            return;
+        }
+        RepeatedQueryReport report = request.findRepeats();
+        if (report != null) {
+            add(repeatedQueries, report);
+        }
+    }
+
+    // records one executed statement, the connection is the real one and is only used to run EXPLAIN for slow statements
+    void record(String sql, List<String> parameterTypes, Object[] parameters, long nanos, boolean success,
+                boolean batch, Connection connection) {
+        String shape = shape(sql);
+        ShapeTotals shapeTotals = totals.get(shape);
+        if (shapeTotals == null) {
+            // the number of shapes is bounded by the code, but a statement built with literals could still add many
+            if (totals.size() >= capacity * 4) {
+                shape = "(other)";
+            }
+            shapeTotals = totals.computeIfAbsent(shape, ShapeTotals::new);
+        }
+        shapeTotals.add(nanos, success);
+
+        RequestQueries request = currentRequest.get();
+        if (request != null) {
+            request.add(shape, nanos);
+        }
+
+        if (nanos >= slowNanos && success) {
+            SlowQuery slow = new SlowQuery(Instant.now(), request != null ? request.name : null, shape,
+                    parameterTypes, nanos / 1_000_000.0, null, null);
+            if (!batch && shouldExplain(shape)) {
+                explain(slow, sql, parameters, connection);
+            }
+            add(slowQueries, slow);
+        }
+    }
+
+    public List<SlowQuery> getSlowQueries(String contains, int limit) {
+        return newestFirst(slowQueries, contains, limit, SlowQuery::getSql);
+    }
+
+    public List<RepeatedQueryReport> getRepeatedQueries(String contains, int limit) {
+        return newestFirst(repeatedQueries, contains, limit, r -> String.join("\n", r.getRepeats()));
+    }
+
+    // sort is total, max, count or errors
+    public List<QueryStats> getQueryStats(String sort, int limit) {
+        Comparator<QueryStats> order = switch (sort) {
+            case "max" -> Comparator.comparingDouble(QueryStats::getMaxMillis);
+            case "count" -> Comparator.comparingLong(QueryStats::getCount);
+            case "errors" -> Comparator.comparingLong(QueryStats::getErrors);
+            default -> Comparator.comparingDouble(QueryStats::getTotalMillis);
+        };
+        return totals.values().stream()
+                .map(ShapeTotals::toStats)
+                .sorted(order.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    // the SQL with whitespace collapsed and literals and IN lists replaced, so the same query always has the same shape
+    static String shape(String sql) {
+        String shape = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+        if (shape.endsWith(";")) {
+            shape = shape.substring(0, shape.length() - 1).trim();
+        }
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return IN_LIST.matcher(shape).replaceAll("IN (...)");
+    }
+
+    // the table and WHERE clause of a statement, two statements with the same target read or write the same rows
+    // e.g. SELECT * FROM runs WHERE runID = ? and UPDATE runs SET ... WHERE runID = ? both give "runs WHERE runID = ?"
+    static String target(String shape) {
+        Matcher matcher = TARGET.matcher(FOR_UPDATE.matcher(shape).replaceAll(""));
+        if (!matcher.matches()) {
+            return shape;
+        }
+        return matcher.group(2) == null ? shape : matcher.group(1) + " WHERE " + matcher.group(2);
+    }
+
+    // one EXPLAIN per shape per interval is enough, and stops a slow database getting even more work
+    private boolean shouldExplain(String shape) {
+        long now = System.currentTimeMillis();
+        Long last = lastExplained.get(shape);
+        if (last != null && now - last < explainIntervalMillis) {
+            return false;
+        }
+        lastExplained.put(shape, now);
+        return true;
+    }
+
+    // runs EXPLAIN with the same parameters on the same connection (so inside the same transaction)
+    private void explain(SlowQuery slow, String sql, Object[] parameters, Connection connection) {
+        String statement = sql.trim();
+        if (statement.endsWith(";")) {
+            statement = statement.substring(0, statement.length() - 1);
+        }
+        if (!EXPLAINABLE.matcher(statement).find()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + statement)) {
+            for (int i = 1; parameters != null && i < parameters.length; i++) {
+                ps.setObject(i, parameters[i]);
+            }
+            List<Map<String, Object>> plan = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int c = 1; c <= meta.getColumnCount(); c++) {
+                        row.put(meta.getColumnLabel(c), rs.getObject(c));
+                    }
+                    plan.add(row);
+                }
+            }
+            slow.setExplain(plan);
+        } catch (SQLException | RuntimeException e) {
+            // e.g. a streaming result set is still open on the connection
+            slow.setExplainError(e.getMessage());
+        }
+    }
+
+    private <T> void add(Deque<T> buffer, T entry) {
+        synchronized (buffer) {
+            if (buffer.size() >= capacity) {
+                buffer.removeFirst();
+            }
+            buffer.addLast(entry);
+        }
+    }
+
+    private <T> List<T> newestFirst(Deque<T> buffer, String contains, int limit, java.util.function.Function<T, String> text) {
+        List<T> copy;
+        synchronized (buffer) {
+            copy = new ArrayList<>(buffer);
+        }
+        List<T> result = new ArrayList<>();
+        for (int i = copy.size() - 1; i >= 0 && result.size() < limit; i--) {
+            T entry = copy.get(i);
+            if (contains == null || text.apply(entry).toLowerCase().contains(contains.toLowerCase())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static final class ShapeTotals {
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final DoubleAdder totalMillis = new DoubleAdder();
+        private volatile double maxMillis;
+
+        private ShapeTotals(String shape) {
+            this.shape = shape;
+        }
+
+        private void add(long nanos, boolean success) {
+            double millis = nanos / 1_000_000.0;
+            count.increment();
+            if (!success) {
+                errors.increment();
+            }
+            totalMillis.add(millis);
+            if (millis > maxMillis) {
+                maxMillis = millis; // a lost race only loses a near-identical maximum
+            }
+        }
+
+        private QueryStats toStats() {
+            return new QueryStats(shape, count.sum(), errors.sum(), totalMillis.sum(), maxMillis);
+        }
+    }
+
+    // the statements one request ran, only used on the request's own thread
+    private static final class RequestQueries {
+        private final String name;
+        private final List<String> shapes = new ArrayList<>();
+        private long nanos;
+
+        private RequestQueries(String name) {
+            this.name = name;
+        }
+
+        private void add(String shape, long statementNanos) {
+            shapes.add(shape);
+            nanos += statementNanos;
+        }
+
+        // groups the statements by the rows they target, any target hit twice or more is reported
+        private RepeatedQueryReport findRepeats() {
+            Map<String, List<String>> byTarget = new LinkedHashMap<>();
+            for (String shape : shapes) {
+                byTarget.computeIfAbsent(target(shape), k -> new ArrayList<>()).add(shape);
+            }
+            List<String> repeats = new ArrayList<>();
+            for (Map.Entry<String, List<String>> e : byTarget.entrySet()) {
+                if (e.getValue().size() > 1) {
+                    StringBuilder sb = new StringBuilder(e.getValue().size() + "x " + e.getKey());
+                    e.getValue().stream().distinct().forEach(s -> sb.append("\n  ").append(s));
+                    repeats.add(sb.toString());
+                }
+            }
+            if (repeats.isEmpty()) {
+                return null;
+            }
+            return new RepeatedQueryReport(Instant.now(), name, shapes.size(), nanos / 1_000_000.0, repeats);
+        }
+    }
+}
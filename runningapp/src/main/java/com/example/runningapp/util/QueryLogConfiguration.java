@@ -0,0 +1,55 @@
+package com.example.runningapp.util;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+// this class turns on the query log, it is off unless runningapp.query-log.enabled=true
+// every statement then goes through QueryLogDataSource, and the results are under /api/diagnostics
+@Configuration
+@ConditionalOnProperty(name = "runningapp.query-log.enabled", havingValue = "true")
+public class QueryLogConfiguration {
+
+	// wraps the datasource so each statement is timed, the QueryLog is looked up lazily
+	// since spring has to create bean post processors before the other beans
+	@Bean
+    public static BeanPostProcessor queryLogDataSourcePostProcessor(ObjectProvider<QueryLog> queryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof QueryLogDataSource) {
+                    return bean;
+                }
+                System.out.println("Query log enabled for datasource " + beanName);
+                return new QueryLogDataSource(dataSource, queryLog.getObject());
+            }
+        };
+    }
+
+	// ties the statements run on a request's thread to that request, so repeated queries can be found per request
+	@Bean
+    public OncePerRequestFilter queryLogRequestFilter(QueryLog queryLog) {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                queryLog.beginRequest(request.getMethod() + " " + request.getRequestURI());
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    queryLog.endRequest();
+                }
+            }
+        };
+    }
+}
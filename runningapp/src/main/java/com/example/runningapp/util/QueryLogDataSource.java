@@ -0,0 +1,146 @@
+package com.example.runningapp.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// this class wraps the datasource so every statement the DAOs run is timed and passed to the QueryLog
+// connections and statements are JDK proxies: prepareStatement remembers the SQL, the setXxx calls remember the
+// parameters (the values are only kept until the statement runs, for EXPLAIN, the log itself only stores their types)
+public class QueryLogDataSource extends DelegatingDataSource {
+
+    private final QueryLog queryLog;
+
+    public QueryLogDataSource(DataSource target, QueryLog queryLog) {
+        super(target);
+        this.queryLog = queryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    String name = method.getName();
+                    if (result instanceof PreparedStatement ps && (name.equals("prepareStatement") || name.equals("prepareCall"))) {
+                        return wrapStatement(ps, connection, (String) args[0]);
+                    }
+                    if (result instanceof Statement statement && name.equals("createStatement")) {
+                        return wrapStatement(statement, connection, null);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement wrapStatement(Statement statement, Connection connection, String sql) {
+        StatementState state = new StatementState(sql);
+        Class<?> type = statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        if (statement instanceof CallableStatement) {
+            type = CallableStatement.class;
+        }
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                        state.bind(index, name, args[1]);
+                        return invoke(statement, method, args);
+                    }
+                    if (name.equals("clearParameters")) {
+                        state.clear();
+                    } else if (name.equals("addBatch") && args != null && args.length == 1) {
+                        state.sql = (String) args[0]; // Statement.addBatch(sql)
+                    } else if (name.startsWith("execute")) {
+                        String executed = args != null && args.length > 0 && args[0] instanceof String s ? s : state.sql;
+                        return execute(statement, method, args, connection, state, executed,
+                                name.equals("executeBatch") || name.equals("executeLargeBatch"));
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private Object execute(Statement statement, Method method, Object[] args, Connection connection, StatementState state,
+                           String sql, boolean batch) throws Throwable {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = invoke(statement, method, args);
+            success = true;
+            return result;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            if (sql != null) {
+                queryLog.record(sql, state.types(), state.values(), nanos, success, batch, connection);
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    // the parameters bound so far, index 0 is unused so the indexes match JDBC's
+    private static final class StatementState {
+        private String sql;
+        private Object[] parameters = new Object[8];
+        private String[] types = new String[8];
+        private int highest;
+
+        private StatementState(String sql) {
+            this.sql = sql;
+        }
+
+        private void bind(int index, String setter, Object value) {
+            if (index >= parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index + 1, parameters.length * 2));
+                types = Arrays.copyOf(types, parameters.length);
+            }
+            boolean isNull = setter.equals("setNull") || value == null;
+            parameters[index] = setter.equals("setNull") ? null : value;
+            // setObject and setNull don't say the type, the value's class is used instead
+            types[index] = isNull ? "null" : setter.equals("setObject") ? value.getClass().getSimpleName() : setter.substring(3);
+            highest = Math.max(highest, index);
+        }
+
+        private void clear() {
+            Arrays.fill(parameters, null);
+            Arrays.fill(types, null);
+            highest = 0;
+        }
+
+        private Object[] values() {
+            return Arrays.copyOf(parameters, highest + 1);
+        }
+
+        private List<String> types() {
+            List<String> list = new ArrayList<>(highest);
+            for (int i = 1; i <= highest; i++) {
+                list.add(types[i]);
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.dao.RunRollupDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// this class rebuilds the run_daily_rollup table when the app is started with --rebuild-rollups
+// e.g. java -jar runningapp.jar --rebuild-rollups
+@Component
+@Order(2)
+public class RollupRebuildRunner implements ApplicationRunner {
+
+    @Autowired
+    private RunRollupDao runRollupDao;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("rebuild-rollups")) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int batches = runRollupDao.rebuildAll();
+        System.out.println("Rebuilt run_daily_rollup in " + batches + " batches (" + (System.currentTimeMillis() - start) + " ms)");
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.runningapp.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// this class writes run rows straight from the ResultSet to the response as NDJSON or CSV
+// no Run objects or lists are built, so memory use stays the same however many rows are exported
+// field names and formats match the normal JSON run responses
+public class RunExportWriter implements RowCallbackHandler {
+
+    private static final String CSV_HEADER = "runID,userID,runDate,runDistance,runDuration,runSpeed,unit,additionalDetails,isDeleted\n";
+
+    private final boolean csv;
+    private final Writer writer;
+    private final JsonGenerator json;
+
+    public RunExportWriter(OutputStream out, String format) throws IOException {
+        this.csv = "csv".equals(format);
+        if (csv) {
+            this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            this.json = null;
+            writer.write(CSV_HEADER);
+        } else {
+            this.writer = null;
+            this.json = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+            // one object per line
+            json.setRootValueSeparator(null);
+        }
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        try {
+            if (csv) {
+                writeCsv(rs);
+            } else {
+                writeJson(rs);
+            }
+        } catch (IOException e) {
+            // most likely the client went away, this stops the query as well
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // flushes whatever is still buffered, called once all rows are written
+    public void finish() throws IOException {
+        if (csv) {
+            writer.flush();
+        } else {
+            json.flush();
+        }
+    }
+
+    private void writeJson(ResultSet rs) throws SQLException, IOException {
+        json.writeStartObject();
+        json.writeNumberField("runID", rs.getInt("runID"));
+        json.writeNumberField("userID", rs.getInt("userID"));
+        json.writeStringField("runDate", rs.getString("runDate"));
+        json.writeNumberField("runDistance", rs.getBigDecimal("runDistance"));
+        json.writeStringField("runDuration", UnitConverter.formatDuration(rs.getInt("durationSeconds")));
+        json.writeNumberField("runSpeed", rs.getBigDecimal("runSpeed"));
+        json.writeStringField("unit", rs.getString("unit"));
+        json.writeStringField("additionalDetails", rs.getString("additionalDetails"));
+        json.writeBooleanField("isDeleted", rs.getBoolean("isDeleted"));
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private void writeCsv(ResultSet rs) throws SQLException, IOException {
+        writer.write(Integer.toString(rs.getInt("runID")));
+        writer.write(',');
+        writer.write(Integer.toString(rs.getInt("userID")));
+        writer.write(',');
+        writeCsvValue(rs.getString("runDate"));
+        writer.write(',');
+        writeCsvValue(rs.getString("runDistance"));
+        writer.write(',');
+        writeCsvValue(UnitConverter.formatDuration(rs.getInt("durationSeconds")));
+        writer.write(',');
+        writeCsvValue(rs.getString("runSpeed"));
+        writer.write(',');
+        writeCsvValue(rs.getString("unit"));
+        writer.write(',');
+        writeCsvValue(rs.getString("additionalDetails"));
+        writer.write(',');
+        writer.write(Boolean.toString(rs.getBoolean("isDeleted")));
+        writer.write('\n');
+    }
+
+    // quotes a value if it has a comma, quote or line break in it (mostly additionalDetails)
+    private void writeCsvValue(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.dao.RunDao;
+import com.example.runningapp.dao.RunRollupDao;
+import com.example.runningapp.model.CacheStats;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// this class keeps the runs of recently active users in memory as columns (UserRunColumns), so the recent runs list
+// and the totals endpoint are answered without going to the database for them
+// totals for users that aren't held (not active lately, or too many runs for the budget) are read from the daily
+// rollup, which is kept in the same transaction as every run write, and so never cause a user's runs to be loaded
+//
+// a user's runs are loaded on the first request that needs them, after that each committed run write is applied to
+// the copy: the run is read back by its ID (one row) and a new copy is made with it swapped in. Every run write moves
+// the user's run version (UserDataVersions.currentRuns), a copy is only changed when it is at the version the write
+// moved on from, and a copy that has missed a change (or is left at an older version) is loaded again in full on the
+// next request. The version is read before the rows, so a write that lands during a load only costs one extra load,
+// never a stale copy
+// the copies are kept least recently used first and dropped once their estimated size is over the memory budget
+@Component
+public class RunHotTier implements InitializingBean, UserDataVersions.RunListener {
+
+    // the recent runs list covers this many days back from today
+    private static final int RECENT_DAYS = 7;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Integer, UserRunColumns> users = new LinkedHashMap<>(16, 0.75f, true);
+
+    // users whose runs alone were over the budget when loaded
+    private final Set<Integer> oversized = new HashSet<>();
+
+    private long bytes;
+    private long hits;
+    private long loads;
+    private long evictions;
+
+    @Autowired
+    private RunDao runDao;
+
+    @Autowired
+    private RunRollupDao runRollupDao;
+
+    @Autowired
+    private UserDataVersions userDataVersions;
+
+    public RunHotTier(@Value("${runningapp.hot-tier.max-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        userDataVersions.setRunListener(this);
+    }
+
+    // the user's non-deleted runs from the last 7 days (as RunDao.getRecentRuns), newest first
+    // a user whose runs are too many to hold only has the 7 days read, every time
+    public UserRunColumns.Slice getRecentRuns(int userId) {
+        LocalDate from = LocalDate.now().minusDays(RECENT_DAYS);
+        boolean tooBig;
+        synchronized (this) {
+            tooBig = oversized.contains(userId);
+        }
+        UserRunColumns runs;
+        if (tooBig) {
+            UserRunColumns.Builder builder = new UserRunColumns.Builder(userId, userDataVersions.currentRuns(userId));
+            runDao.streamRunColumns(userId, null, from, from, builder);
+            runs = builder.build();
+        } else {
+            runs = get(userId);
+        }
+        return runs.since((int) from.toEpochDay());
+    }
+
+    // {distanceMetres, totalSeconds, runCount} for a user between two dates (inclusive)
+    // added up from the held copy when there is a current one, otherwise read from the daily rollup (RunRollupDao),
+    // so a totals request never loads a user's runs (users that aren't active, or have too many runs to hold)
+    public long[] getTotals(int userId, LocalDate from, LocalDate to) {
+        UserRunColumns held = peek(userId);
+        if (held != null) {
+            return held.totals((int) from.toEpochDay(), (int) to.toEpochDay());
+        }
+        return runRollupDao.getTotals(userId, from, to);
+    }
+
+    // the user's runs if a current copy is held, null otherwise (nothing is loaded)
+    private UserRunColumns peek(int userId) {
+        long version = userDataVersions.currentRuns(userId);
+        synchronized (this) {
+            UserRunColumns cached = users.get(userId);
+            if (cached != null && cached.getVersion() == version) {
+                hits++;
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    // the user's runs as they are now, loaded from the database if they aren't held or have changed since
+    public UserRunColumns get(int userId) {
+        long version = userDataVersions.currentRuns(userId);
+        synchronized (this) {
+            UserRunColumns cached = users.get(userId);
+            if (cached != null && cached.getVersion() == version) {
+                hits++;
+                return cached;
+            }
+        }
+
+        UserRunColumns.Builder builder = new UserRunColumns.Builder(userId, version);
+        runDao.streamRunColumns(userId, null, null, LocalDate.now().minusDays(RECENT_DAYS), builder);
+        UserRunColumns loaded = builder.build();
+        synchronized (this) {
+            loads++;
+            // a user whose runs alone are over the budget is still answered, just not kept, and isn't loaded again
+            if (loaded.getBytes() > maxBytes) {
+                oversized.add(userId);
+            } else {
+                UserRunColumns old = users.get(userId);
+                // another request may have loaded a newer copy while this one was loading
+                if (old == null || old.getVersion() <= version) {
+                    if (old != null) {
+                        bytes -= old.getBytes();
+                    }
+                    users.put(userId, loaded);
+                    bytes += loaded.getBytes();
+                    evict();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // called after a run write has committed, for each user whose runs it changed
+    // the changed run is read while no lock is held, only for users whose runs are held
+    @Override
+    public void runChanged(int userId, int runId, long before, long after) {
+        synchronized (this) {
+            if (!users.containsKey(userId)) {
+                return;
+            }
+            if (runId == 0) {
+                // several runs at once (a bulk import), the next request loads them all again
+                drop(userId);
+                return;
+            }
+        }
+
+        UserRunColumns changed;
+        try {
+            UserRunColumns.Builder builder = new UserRunColumns.Builder(userId, after, 1);
+            runDao.streamRunColumns(userId, runId, null, LocalDate.now().minusDays(RECENT_DAYS), builder);
+            changed = builder.build();
+        } catch (RuntimeException e) {
+            // the write has already committed, so it isn't failed for this, the copy is loaded again instead
+            synchronized (this) {
+                drop(userId);
+            }
+            return;
+        }
+        synchronized (this) {
+            UserRunColumns held = users.get(userId);
+            if (held == null || held.getVersion() >= after) {
+                // gone, or loaded after this write committed and so already has it
+                return;
+            }
+            if (held.getVersion() != before) {
+                // an earlier change hasn't been applied (yet), rather than apply them out of order it is loaded again
+                drop(userId);
+                return;
+            }
+            UserRunColumns updated = held.replace(runId, changed, after);
+            bytes += updated.getBytes() - held.getBytes();
+            users.put(userId, updated);
+            evict();
+        }
+    }
+
+    // misses are the loads, size is the number of users held
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, loads, evictions, users.size());
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void drop(int userId) {
+        UserRunColumns old = users.remove(userId);
+        if (old != null) {
+            bytes -= old.getBytes();
+        }
+    }
+
+    // drops the least recently used users until the total is back under the budget
+    private void evict() {
+        Iterator<Map.Entry<Integer, UserRunColumns>> it = users.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().getValue().getBytes();
+            it.remove();
+            evictions++;
+        }
+    }
+}
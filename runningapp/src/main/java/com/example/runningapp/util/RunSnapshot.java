@@ -0,0 +1,334 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.mapping.Columns;
+import com.example.runningapp.model.RunAnalytics;
+import com.example.runningapp.model.RunSummary;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+// this class is one analytics snapshot of the runs table, every non-deleted run written to a file as four int columns
+// (userID, runDate as an epoch day, distanceMetres, durationSeconds) so the global figures never read the runs table
+// RunSnapshotExporter writes a new one every so often and swaps it in
+//
+// the file is a 32 byte header followed by the columns one after the other, each rowCount ints, little endian:
+//   magic, format version, createdAt (epoch millis, a long), rowCount, maxUserId, minDay, maxDay
+// the columns are read through FileChannel.map, so the OS page cache holds them rather than the heap, and each
+// figure is worked out by scanning chunks of rows in parallel and adding the chunks' results together
+// it is never changed once written, readers need no locks
+public final class RunSnapshot {
+
+    static final int MAGIC = 0x524e5331; // "RNS1"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    private static final int USER_ID = 0;
+    private static final int DAY = 1;
+    private static final int METRES = 2;
+    private static final int SECONDS = 3;
+    private static final int COLUMN_COUNT = 4;
+
+    // rows per parallel task, big enough that splitting costs next to nothing next to the scan
+    private static final int CHUNK_ROWS = 1 << 16;
+
+    private final Path file;
+    private final long createdAt;
+    private final int rowCount;
+    private final int maxUserId;
+    private final int minDay;
+    private final int maxDay;
+    private final IntBuffer[] columns;
+
+    private RunSnapshot(Path file, long createdAt, int rowCount, int maxUserId, int minDay, int maxDay, IntBuffer[] columns) {
+        this.file = file;
+        this.createdAt = createdAt;
+        this.rowCount = rowCount;
+        this.maxUserId = maxUserId;
+        this.minDay = minDay;
+        this.maxDay = maxDay;
+        this.columns = columns;
+    }
+
+    // maps a snapshot file, the mapping stays valid after the channel is closed
+    public static RunSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a run snapshot: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not a run snapshot: " + file);
+            }
+            int rows = header.getInt(16);
+            long columnBytes = 4L * rows;
+            if (channel.size() != HEADER_BYTES + COLUMN_COUNT * columnBytes) {
+                throw new IOException("Run snapshot is truncated: " + file);
+            }
+            IntBuffer[] columns = new IntBuffer[COLUMN_COUNT];
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                columns[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + c * columnBytes, columnBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            return new RunSnapshot(file, header.getLong(8), rows, header.getInt(20), header.getInt(24), header.getInt(28), columns);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    // one RunSummary per day between the dates (inclusive), days without runs included with zero totals
+    // the unit values are left for the caller to fill in, as with RunDao.getRunSummary
+    public List<RunSummary> dailyTotals(LocalDate from, LocalDate to) {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        int days = toDay - fromDay + 1;
+        IntBuffer dayColumn = columns[DAY];
+        IntBuffer metresColumn = columns[METRES];
+        IntBuffer secondsColumn = columns[SECONDS];
+
+        // {metres, seconds, count} per day, laid out one after the other
+        long[] totals = scan(() -> new long[days * 3], (acc, start, end) -> {
+            for (int i = start; i < end; i++) {
+                int day = dayColumn.get(i);
+                if (day >= fromDay && day <= toDay) {
+                    int at = (day - fromDay) * 3;
+                    acc[at] += metresColumn.get(i);
+                    acc[at + 1] += secondsColumn.get(i);
+                    acc[at + 2]++;
+                }
+            }
+        }, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+            return a;
+        });
+
+        List<RunSummary> summary = new ArrayList<>(days);
+        for (int d = 0; d < days; d++) {
+            summary.add(new RunSummary(from.plusDays(d), totals[d * 3], totals[d * 3 + 1], (int) totals[d * 3 + 2]));
+        }
+        return summary;
+    }
+
+    // the number of users with a run, the totals and the distance distribution of the runs between the dates (inclusive)
+    // the totals' unit values are left for the caller to fill in
+    public RunAnalytics overview(LocalDate from, LocalDate to, int bucketMetres, int buckets) {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        IntBuffer userColumn = columns[USER_ID];
+        IntBuffer dayColumn = columns[DAY];
+        IntBuffer metresColumn = columns[METRES];
+        IntBuffer secondsColumn = columns[SECONDS];
+
+        Overview result = scan(() -> new Overview(maxUserId, buckets), (acc, start, end) -> {
+            for (int i = start; i < end; i++) {
+                int day = dayColumn.get(i);
+                if (day >= fromDay && day <= toDay) {
+                    int metres = metresColumn.get(i);
+                    acc.users.set(userColumn.get(i));
+                    acc.metres += metres;
+                    acc.seconds += secondsColumn.get(i);
+                    acc.runs++;
+                    acc.buckets[Math.min(metres / bucketMetres, buckets - 1)]++;
+                }
+            }
+        }, Overview::add);
+
+        RunSummary totals = new RunSummary(from, result.metres, result.seconds, result.runs);
+        return new RunAnalytics(new Timestamp(createdAt), from, to, result.users.cardinality(), totals, bucketMetres, result.buckets);
+    }
+
+    // the first and last day with a run, null when the snapshot is empty
+    public LocalDate getFirstDay() {
+        return rowCount == 0 ? null : LocalDate.ofEpochDay(minDay);
+    }
+
+    public LocalDate getLastDay() {
+        return rowCount == 0 ? null : LocalDate.ofEpochDay(maxDay);
+    }
+
+    // splits the rows into chunks, scans them on the common fork join pool and adds the chunks' results together
+    // the absolute IntBuffer gets don't move the buffers' positions, so the tasks can share them
+    private <T> T scan(Supplier<T> init, ChunkScan<T> chunkScan, BinaryOperator<T> merge) {
+        int chunks = (rowCount + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    T acc = init.get();
+                    chunkScan.scan(acc, chunk * CHUNK_ROWS, Math.min(rowCount, (chunk + 1) * CHUNK_ROWS));
+                    return acc;
+                })
+                .reduce(merge)
+                .orElseGet(init);
+    }
+
+    private interface ChunkScan<T> {
+        void scan(T acc, int start, int end);
+    }
+
+    // one chunk's share of the overview
+    private static final class Overview {
+        final BitSet users;
+        final long[] buckets;
+        long metres;
+        long seconds;
+        int runs;
+
+        Overview(int maxUserId, int buckets) {
+            this.users = new BitSet(maxUserId + 1);
+            this.buckets = new long[buckets];
+        }
+
+        Overview add(Overview other) {
+            users.or(other.users);
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += other.buckets[i];
+            }
+            metres += other.metres;
+            seconds += other.seconds;
+            runs += other.runs;
+            return this;
+        }
+    }
+
+    // writes the rows of RunDao.streamRuns(null, ...) to a snapshot file
+    // the row count isn't known until the end, so each column goes to its own temporary file first and finish()
+    // puts the header and the columns together into the snapshot file
+    static final class Writer implements RowCallbackHandler, Closeable {
+        private static final String[] COLUMNS = { "userID", "runDate", "distanceMetres", "durationSeconds" };
+        private static final int BUFFER_BYTES = 64 * 1024;
+
+        private final Path target;
+        private final long createdAt;
+        private final Path[] columnFiles = new Path[COLUMN_COUNT];
+        private final FileChannel[] channels = new FileChannel[COLUMN_COUNT];
+        private final ByteBuffer[] buffers = new ByteBuffer[COLUMN_COUNT];
+        private int[] index;
+        private int rowCount;
+        private int maxUserId;
+        private int minDay = Integer.MAX_VALUE;
+        private int maxDay = Integer.MIN_VALUE;
+
+        Writer(Path target, long createdAt) throws IOException {
+            this.target = target;
+            this.createdAt = createdAt;
+            try {
+                for (int c = 0; c < COLUMN_COUNT; c++) {
+                    columnFiles[c] = target.resolveSibling(target.getFileName() + "." + COLUMNS[c]);
+                    channels[c] = FileChannel.open(columnFiles[c], StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                            StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+                    buffers[c] = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            if (index == null) {
+                index = Columns.resolve(rs, COLUMNS);
+            }
+            int userId = rs.getInt(index[USER_ID]);
+            int day = Columns.getEpochDay(rs, index[DAY]);
+            maxUserId = Math.max(maxUserId, userId);
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+            put(USER_ID, userId);
+            put(DAY, day);
+            put(METRES, rs.getInt(index[METRES]));
+            put(SECONDS, rs.getInt(index[SECONDS]));
+            rowCount++;
+        }
+
+        private void put(int column, int value) {
+            ByteBuffer buffer = buffers[column];
+            if (!buffer.hasRemaining()) {
+                flush(column);
+            }
+            buffer.putInt(value);
+        }
+
+        private void flush(int column) {
+            ByteBuffer buffer = buffers[column];
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channels[column].write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+
+        int getRowCount() {
+            return rowCount;
+        }
+
+        // writes the snapshot file and syncs it to disk, the caller moves it into place
+        void finish() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(createdAt).putInt(rowCount).putInt(maxUserId)
+                    .putInt(rowCount == 0 ? 0 : minDay).putInt(rowCount == 0 ? 0 : maxDay);
+            header.flip();
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                for (int c = 0; c < COLUMN_COUNT; c++) {
+                    flush(c);
+                    long size = channels[c].size();
+                    long copied = 0;
+                    while (copied < size) {
+                        copied += channels[c].transferTo(copied, size - copied, out);
+                    }
+                }
+                out.force(true);
+            }
+        }
+
+        // closes and deletes the column files, the snapshot file is left alone
+        @Override
+        public void close() throws IOException {
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                if (channels[c] != null) {
+                    channels[c].close();
+                }
+                if (columnFiles[c] != null) {
+                    Files.deleteIfExists(columnFiles[c]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.dao.RunDao;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// this class writes the analytics snapshot (RunSnapshot) of all non-deleted runs every runningapp.analytics.refresh-minutes
+// and holds the current one, the global analytics endpoints read that instead of the runs table
+//
+// a new snapshot is written to a temporary file and renamed into place, then swapped in with one volatile write,
+// so a request sees either the old snapshot or the new one, never part of one. The old file is deleted straight
+// away, requests still scanning it keep their mapping (the OS only frees a deleted file once it is unmapped)
+// on startup the newest snapshot already in the directory is mapped, so a restart doesn't wait for a new export
+@Component
+public class RunSnapshotExporter implements InitializingBean, DisposableBean {
+
+    private static final String PREFIX = "runs-";
+    private static final String SUFFIX = ".snap";
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long refreshMillis;
+    private volatile RunSnapshot snapshot;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    private RunDao runDao;
+
+    public RunSnapshotExporter(@Value("${runningapp.analytics.enabled:true}") boolean enabled,
+                               @Value("${runningapp.analytics.dir:analytics}") String dir,
+                               @Value("${runningapp.analytics.refresh-minutes:60}") long refreshMinutes) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.refreshMillis = TimeUnit.MINUTES.toMillis(refreshMinutes);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        snapshot = openLatest();
+        long age = snapshot == null ? refreshMillis : System.currentTimeMillis() - snapshot.getCreatedAt();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "run-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, Math.max(0, refreshMillis - age), refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // the current snapshot, null until the first one has been written (or when the exporter is turned off)
+    public RunSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // streams the runs table into a new snapshot file and swaps it in
+    public synchronized RunSnapshot refresh() throws IOException {
+        Files.createDirectories(dir);
+        long createdAt = System.currentTimeMillis();
+        Path target = dir.resolve(PREFIX + createdAt + SUFFIX);
+        Path temp = dir.resolve(PREFIX + createdAt + SUFFIX + ".tmp");
+        try (RunSnapshot.Writer writer = new RunSnapshot.Writer(temp, createdAt)) {
+            runDao.streamRuns(null, writer);
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        RunSnapshot fresh = RunSnapshot.open(target);
+        snapshot = fresh;
+        deleteAllBut(target);
+        System.out.println("Wrote run snapshot of " + fresh.getRowCount() + " runs in "
+                + (System.currentTimeMillis() - createdAt) + " ms");
+        return fresh;
+    }
+
+    // a failed export keeps the old snapshot, the next one is tried at the usual time
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            System.out.println("Run snapshot export failed: " + e);
+        }
+    }
+
+    // the newest readable snapshot in the directory, files left over from a crash are skipped
+    private RunSnapshot openLatest() {
+        if (!Files.isDirectory(dir)) {
+            return null;
+        }
+        RunSnapshot latest = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    RunSnapshot candidate = RunSnapshot.open(file);
+                    if (latest == null || candidate.getCreatedAt() > latest.getCreatedAt()) {
+                        latest = candidate;
+                    }
+                } catch (IOException e) {
+                    System.out.println("Skipping run snapshot " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read the run snapshot directory " + dir + ": " + e.getMessage());
+        }
+        return latest;
+    }
+
+    // the older snapshots and anything left over from an export that didn't finish
+    private void deleteAllBut(Path keep) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*")) {
+            for (Path file : files) {
+                if (!file.equals(keep)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
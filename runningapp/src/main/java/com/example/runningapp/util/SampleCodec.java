@@ -0,0 +1,142 @@
+package com.example.runningapp.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+// this class packs a run's per-second samples into a small byte array and reads them back
+// each column (elapsed time, distance, pace) is stored one after the other as the difference from the previous value,
+// zigzag encoded so negatives stay small, then written as a varint (7 bits per byte)
+// the result is then deflated, which squeezes out the long runs of identical deltas (e.g. elapsed time going up by 1)
+// an hour of 1 second samples ends up around 4 KB instead of 3600 rows
+//
+// layout before deflating: count, length of column 1, length of column 2, column 1, column 2, column 3
+public final class SampleCodec {
+
+    private SampleCodec() {}
+
+    // all three arrays must have the same length
+    public static byte[] encode(int[] elapsedSeconds, int[] distanceDecimetres, int[] paceDecisecondsPerKm) {
+        byte[] elapsed = encodeColumn(elapsedSeconds);
+        byte[] distance = encodeColumn(distanceDecimetres);
+        byte[] pace = encodeColumn(paceDecisecondsPerKm);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(elapsed.length + distance.length + pace.length + 12);
+        writeVarint(out, elapsedSeconds.length);
+        writeVarint(out, elapsed.length);
+        writeVarint(out, distance.length);
+        out.write(elapsed, 0, elapsed.length);
+        out.write(distance, 0, distance.length);
+        out.write(pace, 0, pace.length);
+        return deflate(out.toByteArray());
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            out.write(buffer, 0, length);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Sample data is corrupt");
+        }
+    }
+
+    private static byte[] encodeColumn(int[] values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(values.length * 2);
+        int previous = 0;
+        for (int value : values) {
+            int delta = value - previous;
+            writeVarint(out, (delta << 1) ^ (delta >> 31)); // zigzag
+            previous = value;
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // reads the samples back one at a time, the blob is inflated up front but no sample is decoded until next() is called
+    public static class Decoder {
+        private final byte[] data;
+        private final int count;
+        private final int[] positions = new int[3];
+        private final int[] values = new int[3];
+        private int index;
+
+        public Decoder(byte[] compressed) {
+            this.data = inflate(compressed);
+            int[] header = new int[3];
+            int position = 0;
+            for (int i = 0; i < 3; i++) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                header[i] = value;
+            }
+            this.count = header[0];
+            positions[0] = position;
+            positions[1] = position + header[1];
+            positions[2] = position + header[1] + header[2];
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean hasNext() {
+            return index < count;
+        }
+
+        // moves to the next sample, read it with the getters below
+        public void next() {
+            for (int column = 0; column < 3; column++) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[positions[column]++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                values[column] += (value >>> 1) ^ -(value & 1); // undo zigzag and delta
+            }
+            index++;
+        }
+
+        public int getElapsedSeconds() {
+            return values[0];
+        }
+
+        public int getDistanceDecimetres() {
+            return values[1];
+        }
+
+        public int getPaceDecisecondsPerKm() {
+            return values[2];
+        }
+    }
+}
@@ -1,18 +1,56 @@
 package com.example.runningapp.util;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 // this class allows for password hashing/encryption
 @Configuration
 public class SecurityConfiguration {
 
+	// the cost factor used to be hard-coded to 12, which could be too slow on one server and too weak on another
+	// it is now picked at startup: the strongest cost whose hash fits in the login time budget on this machine,
+	// kept between the min and max below. Setting runningapp.hashing.bcrypt-cost skips the benchmark
+	@Value("${runningapp.hashing.bcrypt-cost:0}")
+	private int fixedCost;
+
+	@Value("${runningapp.hashing.target-millis:250}")
+	private long targetMillis;
+
+	@Value("${runningapp.hashing.min-cost:10}")
+	private int minCost;
+
+	@Value("${runningapp.hashing.max-cost:14}")
+	private int maxCost;
+
 	// a bean is created for bcypt to be used
 	// password is encrypted before storing it in the database
 	@Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12); // strength 12 (2^12), above this might make it a bit too slow performance wise
+    public CalibratedPasswordEncoder passwordEncoder() {
+        int cost = fixedCost > 0 ? fixedCost : calibrate();
+        System.out.println("Using bcrypt cost " + cost);
+        return new CalibratedPasswordEncoder(cost);
+    }
+
+	// times a few hashes at the minimum cost, each step up doubles the work, so the other costs are worked out from it
+    private int calibrate() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minCost);
+        encoder.encode("warm-up"); // first call includes class loading and JIT
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double millis = best / 1_000_000.0;
+        int cost = minCost;
+        while (cost < maxCost && millis * 2 <= targetMillis) {
+            millis *= 2;
+            cost++;
+        }
+        System.out.println("bcrypt calibration: cost " + minCost + " took " + best / 1_000_000 + " ms, target " + targetMillis + " ms");
+        return cost;
     }
 }
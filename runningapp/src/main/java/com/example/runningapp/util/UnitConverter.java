@@ -0,0 +1,80 @@
+package com.example.runningapp.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// this class converts run distances and durations into plain numbers
+// distances are normalised to whole metres so km and miles runs can be added together
+public final class UnitConverter {
+
+    public static final BigDecimal METRES_PER_KM = BigDecimal.valueOf(1000);
+    public static final BigDecimal METRES_PER_MILE = new BigDecimal("1609.344");
+
+    private UnitConverter() {}
+
+    // converts a distance in the given unit to metres, a missing unit is treated as km (the schema default)
+    public static long toMetres(BigDecimal distance, String unit) {
+        if (distance == null) {
+            return 0;
+        }
+        return distance.multiply(metresPer(unit)).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    // converts metres back into km or miles, rounded to 2 decimal places like the runs table
+    public static BigDecimal fromMetres(long metres, String unit) {
+        return BigDecimal.valueOf(metres).divide(metresPer(unit), 2, RoundingMode.HALF_UP);
+    }
+
+    // converts hundredths of a km or mile (how Run holds its distance) to metres, rounded half up like toMetres
+    // done in whole numbers, 1609.344 metres a mile is 1609344 per 100000 hundredths
+    public static long centisToMetres(int centis, String unit) {
+        if ("miles".equals(unit)) {
+            return Math.floorDiv(centis * 1_609_344L + 50_000, 100_000);
+        }
+        return centis * 10L;
+    }
+
+    // formats a duration in seconds as HH:mm:ss, the hours go past 24 (and past 2 digits) for very long runs
+    public static String formatDuration(int seconds) {
+        int hours = seconds / 3600;
+        int minutes = seconds / 60 % 60;
+        int secs = seconds % 60;
+        StringBuilder sb = new StringBuilder(8);
+        if (hours < 10) {
+            sb.append('0');
+        }
+        sb.append(hours).append(':');
+        if (minutes < 10) {
+            sb.append('0');
+        }
+        sb.append(minutes).append(':');
+        if (secs < 10) {
+            sb.append('0');
+        }
+        return sb.append(secs).toString();
+    }
+
+    // parses H:mm:ss (any number of hour digits) into seconds, throws IllegalArgumentException if it isn't a duration
+    public static int parseDuration(String duration) {
+        String[] parts = duration.trim().split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Duration must be HH:mm:ss: " + duration);
+        }
+        try {
+            int hours = Integer.parseInt(parts[0]);
+            int minutes = Integer.parseInt(parts[1]);
+            int seconds = Integer.parseInt(parts[2]);
+            if (hours < 0 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+                throw new IllegalArgumentException("Duration must be HH:mm:ss: " + duration);
+            }
+            return Math.toIntExact(hours * 3600L + minutes * 60 + seconds);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Duration must be HH:mm:ss: " + duration);
+        }
+    }
+
+    // metres in one km or one mile
+    public static BigDecimal metresPer(String unit) {
+        return "miles".equals(unit) ? METRES_PER_MILE : METRES_PER_KM;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.model.CacheStats;
+import com.example.runningapp.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+// this class is a size-limited, least-recently-used cache of users, looked up by ID or by username
+// UserDao reads through it and calls invalidate() after every write to a user
+//
+// a lookup that misses loads the user outside the lock, so while it is loading another request might update
+// that user; the generation counter is bumped on every invalidation and a loaded user is only stored if no
+// invalidation happened in the meantime, so an old row can never be put back after an update
+// users are copied going in and out because callers change them (e.g. login clears the password)
+@Component
+public class UserCache {
+
+    private final int maxSize;
+    private final LinkedHashMap<Integer, User> byId;
+    private final LinkedHashMap<String, User> byUsername;
+
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public UserCache(@Value("${runningapp.user-cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.byId = createMap();
+        this.byUsername = createMap();
+    }
+
+    // returns the user with this ID, using the loader on a miss (the loader may return null)
+    public User getById(int userId, IntFunction<User> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            User cached = byId.get(userId);
+            if (cached != null) {
+                hits++;
+                return copy(cached);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        User loaded = loader.apply(userId);
+        if (loaded != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    byId.put(userId, copy(loaded));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // returns the non-deleted user with this username, using the loader on a miss
+    public User getByUsername(String username, Function<String, User> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            User cached = byUsername.get(username);
+            if (cached != null) {
+                hits++;
+                return copy(cached);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        User loaded = loader.apply(username);
+        if (loaded != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    byUsername.put(username, copy(loaded));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // removes every cached copy of a user, must be called after the database write has finished
+    public synchronized void invalidate(int userId) {
+        generation++;
+        byId.remove(userId);
+        // the username may have just changed, so entries are matched by ID rather than by name
+        byUsername.values().removeIf(user -> user.getUserID() == userId);
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, byId.size() + byUsername.size());
+    }
+
+    // access-ordered map that drops the least recently used entry once it is full
+    private <K> LinkedHashMap<K, User> createMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, User> eldest) {
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static User copy(User user) {
+        return new User(user.getUserID(), user.getUsername(), user.getName(), user.getPassword(),
+                user.getUnitPreference(), user.isDeleted());
+    }
+}
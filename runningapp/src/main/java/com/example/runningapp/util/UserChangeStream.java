@@ -0,0 +1,232 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.model.ChangeEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// this class holds the open server-sent event connections of /api/stream/user/{userId} and pushes change events to them
+//
+// an idle connection is only an async request (no thread) plus a small queue, so a lot of them can be kept open
+// publishing never blocks the writing request: the event is serialized once and offered to each connection's queue,
+// and a connection's queue is written out by the stream executor, one task per connection at a time
+// a connection whose queue is full is too slow to keep up and is closed, the browser's EventSource reconnects
+// and the client can refetch (the list ETags tell it whether anything changed)
+@Component
+public class UserChangeStream implements DisposableBean {
+
+    // a comment line, keeps proxies from closing idle connections and finds the ones whose client has gone
+    private static final Message HEARTBEAT = new Message(null, null, null);
+
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final int maxConnections;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final ScheduledExecutorService heartbeat;
+
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public UserChangeStream(ObjectMapper objectMapper,
+                            @Qualifier("streamExecutor") Executor executor,
+                            @Value("${runningapp.stream.max-connections:10000}") int maxConnections,
+                            @Value("${runningapp.stream.buffer-size:32}") int bufferSize,
+                            @Value("${runningapp.stream.timeout-ms:3600000}") long timeoutMillis,
+                            @Value("${runningapp.stream.heartbeat-ms:30000}") long heartbeatMillis) {
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.maxConnections = maxConnections;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // opens a stream for the user, the first event is "ready" with the current version
+    // returns null when the node already has as many connections as it takes
+    public SseEmitter subscribe(int userId, long version) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscribers.compute(userId, (id, set) -> {
+            Set<Subscriber> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            result.add(subscriber);
+            return result;
+        });
+        subscriber.offer(new Message("ready", String.valueOf(version), "{\"version\":" + version + "}"));
+        return emitter;
+    }
+
+    // sends the event to every open stream of the user, called after the change has committed
+    public void publish(int userId, ChangeEvent event) {
+        Set<Subscriber> set = subscribers.get(userId);
+        if (set == null || set.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        Message message = new Message(event.getType(), String.valueOf(event.getVersion()), json);
+        for (Subscriber subscriber : set) {
+            subscriber.offer(message);
+        }
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    // how many connections have been closed for falling behind
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void sendHeartbeats() {
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        heartbeat.shutdownNow();
+        for (Set<Subscriber> set : subscribers.values()) {
+            for (Subscriber subscriber : set) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    // name is null for a heartbeat
+    private static final class Message {
+        private final String name;
+        private final String id;
+        private final String data;
+
+        private Message(String name, String id, String data) {
+            this.name = name;
+            this.id = id;
+            this.data = data;
+        }
+
+        private SseEmitter.SseEventBuilder toEvent() {
+            if (name == null) {
+                return SseEmitter.event().comment("");
+            }
+            return SseEmitter.event().name(name).id(id).data(data);
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+        private final int userId;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Message> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // set when the connection was closed for falling behind, the drain task then completes the emitter
+        private final AtomicBoolean completing = new AtomicBoolean();
+
+        private Subscriber(int userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void offer(Message message) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(message)) {
+                // complete() waits for a send in progress, so it is left to the drain task instead of the
+                // publishing thread (a request's afterCommit or the heartbeat)
+                dropped.incrementAndGet();
+                completing.set(true);
+                close();
+                schedule();
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        // writes out what is queued, the scheduled flag makes sure only one thread writes to a connection at a time
+        @Override
+        public void run() {
+            try {
+                Message message;
+                while (!closed.get() && (message = queue.poll()) != null) {
+                    emitter.send(message.toEvent());
+                }
+                if (completing.compareAndSet(true, false)) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client has gone, the container completes the emitter
+                close();
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // an event offered (or a completion asked for) after the loop ended but before the flag was cleared
+            // would otherwise wait for the next one
+            if (!queue.isEmpty() || completing.get()) {
+                schedule();
+            }
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            connections.decrementAndGet();
+            queue.clear();
+            subscribers.computeIfPresent(userId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+}
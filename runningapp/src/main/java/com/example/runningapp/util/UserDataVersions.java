@@ -0,0 +1,105 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.model.ChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// this class keeps a version number per user for their runs and goals, used to make the ETags of the list endpoints
+// RunDao and GoalDao call bump() after every write, a list request whose If-None-Match still has the current version
+// can be answered with a 304 without reading anything, and the change is pushed to the user's open streams
+//
+// versions come from one counter that starts at the boot time in microseconds, so they only go up, also across
+// restarts, and users nobody has written to since the boot all share the starting value
+// the versions are only in memory, so this is only right while the app runs as a single instance
+@Component
+public class UserDataVersions {
+
+    private final long bootVersion = System.currentTimeMillis() * 1000;
+    private final AtomicLong counter = new AtomicLong(bootVersion);
+    private final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> runVersions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private UserChangeStream userChangeStream;
+
+    // told about every committed run change, RunHotTier sets itself here to keep its copies up to date
+    private volatile RunListener runListener;
+
+    // read this before reading the data it describes, a write that lands in between then just costs the next request a 200
+    public long current(int userId) {
+        return versions.getOrDefault(userId, bootVersion);
+    }
+
+    // as current() but only moved by writes to the user's runs, RunHotTier keeps a user's runs while this stays the same
+    public long currentRuns(int userId) {
+        return runVersions.getOrDefault(userId, bootVersion);
+    }
+
+    // inside a transaction the version only changes once it has committed, otherwise a request could see the new
+    // version while still reading the old rows and keep them under an ETag that would never change again
+    // change is the event type (e.g. run.updated) and id the run or goal
+    public void bump(int userId, String change, int id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changed(userId, change, id);
+                }
+            });
+        } else {
+            changed(userId, change, id);
+        }
+    }
+
+    public void setRunListener(RunListener runListener) {
+        this.runListener = runListener;
+    }
+
+    // a run change takes its version while holding the user's runVersions entry, so a user's run versions are
+    // handed out in the order they are set and the listener gets the version each change moved on from
+    private void changed(int userId, String change, int id) {
+        long version;
+        if (change.startsWith("run.")) {
+            long[] before = new long[1];
+            version = runVersions.compute(userId, (key, old) -> {
+                before[0] = old != null ? old : bootVersion;
+                return counter.incrementAndGet();
+            });
+            versions.merge(userId, version, Math::max);
+            RunListener listener = runListener;
+            if (listener != null) {
+                listener.runChanged(userId, id, before[0], version);
+            }
+        } else {
+            version = counter.incrementAndGet();
+            versions.merge(userId, version, Math::max);
+        }
+        userChangeStream.publish(userId, new ChangeEvent(change, id, version));
+    }
+
+    public interface RunListener {
+        // runId is the run that changed, 0 when it was several at once (run.imported)
+        // before is the user's run version before this change and after the one it has now
+        void runChanged(int userId, int runId, long before, long after);
+    }
+
+    // a strong ETag for one list of a user's data, the variant covers whatever else changes the response
+    // (the query string, or the day for the recent runs)
+    public String etag(String list, int userId, String variant) {
+        String etag = list + "-" + userId + "-" + Long.toString(current(userId), 36);
+        if (variant != null && !variant.isEmpty()) {
+            CRC32 crc = new CRC32();
+            crc.update(variant.getBytes(StandardCharsets.UTF_8));
+            etag += "-" + Long.toString(crc.getValue(), 36);
+        }
+        return "\"" + etag + "\"";
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.mapping.Columns;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+// this class holds one user's non-deleted runs as columns, one primitive array per field, newest first
+// (runDate DESC, runID DESC, the order of the run lists). RunHotTier keeps these for recently active users
+//
+// it is never changed once built, a write to the user's runs makes RunHotTier build a new one from this one and the
+// changed row (see replace), so readers need no locks
+// additionalDetails is only held for the runs inside the recent runs window when they were read, older runs are only
+// ever added up (the window only moves forward, so they can't come back into it)
+// ranges of days are found with a binary search and added up in a loop over the int arrays, and a range of rows
+// is written to JSON straight from the arrays (see Slice), so no Run objects are made for either
+public final class UserRunColumns {
+
+    private static final String[] UNITS = { null, "km", "miles" };
+
+    // rough heap cost of one row across all the arrays, additionalDetails strings are counted separately
+    private static final int BYTES_PER_ROW = 4 * 6 + 1 + 8 + 8 + 8;
+
+    private final int userId;
+    private final long version;
+    private final int size;
+    private final int[] runIds;
+    private final int[] days;           // epoch days
+    private final int[] metres;
+    private final int[] seconds;
+    private final int[] distanceCentis; // hundredths of the run's unit, what runDistance is sent as
+    private final int[] speedCentis;    // Columns.NULL_INT when the run has no speed
+    private final byte[] units;         // index into UNITS
+    private final String[] details;
+    private final long[] changeSeqs;
+    private final long[] updatedAt;     // epoch millis
+    private final long bytes;
+
+    private UserRunColumns(Builder b) {
+        this.userId = b.userId;
+        this.version = b.version;
+        this.size = b.size;
+        this.runIds = Arrays.copyOf(b.runIds, size);
+        this.days = Arrays.copyOf(b.days, size);
+        this.metres = Arrays.copyOf(b.metres, size);
+        this.seconds = Arrays.copyOf(b.seconds, size);
+        this.distanceCentis = Arrays.copyOf(b.distanceCentis, size);
+        this.speedCentis = Arrays.copyOf(b.speedCentis, size);
+        this.units = Arrays.copyOf(b.units, size);
+        this.details = Arrays.copyOf(b.details, size);
+        this.changeSeqs = Arrays.copyOf(b.changeSeqs, size);
+        this.updatedAt = Arrays.copyOf(b.updatedAt, size);
+        this.bytes = 128 + (long) size * BYTES_PER_ROW + b.detailBytes;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    // the UserDataVersions.currentRuns() value read before the rows were, the copy is current while that hasn't moved
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // estimated heap size, used for the hot tier's memory budget
+    public long getBytes() {
+        return bytes;
+    }
+
+    // a copy at the given version with the run taken out, and changed (the run as it is now, no rows when it was
+    // deleted) put in at its place in the order
+    public UserRunColumns replace(int runId, UserRunColumns changed, long newVersion) {
+        Builder b = new Builder(userId, newVersion, size + changed.size);
+        boolean added = changed.size == 0;
+        for (int i = 0; i < size; i++) {
+            if (!added && (days[i] < changed.days[0] || (days[i] == changed.days[0] && runIds[i] < changed.runIds[0]))) {
+                b.add(changed, 0);
+                added = true;
+            }
+            if (runIds[i] != runId) {
+                b.add(this, i);
+            }
+        }
+        if (!added) {
+            b.add(changed, 0);
+        }
+        return b.build();
+    }
+
+    // the runs on or after a day, newest first
+    public Slice since(int fromDay) {
+        return new Slice(this, 0, firstBefore(fromDay));
+    }
+
+    // {distanceMetres, totalSeconds, runCount} of the runs between two days (inclusive)
+    public long[] totals(int fromDay, int toDay) {
+        long totalMetres = 0;
+        long totalSeconds = 0;
+        int end = firstBefore(fromDay);
+        int start = firstBefore(toDay + 1);
+        for (int i = start; i < end; i++) {
+            totalMetres += metres[i];
+            totalSeconds += seconds[i];
+        }
+        return new long[] { totalMetres, totalSeconds, end - start };
+    }
+
+    // index of the first row whose day is before the given day (days are in descending order)
+    private int firstBefore(int day) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] >= day) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // a range of rows, sent as a JSON array of runs with the same fields and formats as Run
+    // (the ApiResponse holds this instead of a List<Run>)
+    public static final class Slice implements JsonSerializable {
+        private final UserRunColumns runs;
+        private final int from;
+        private final int to;
+
+        private Slice(UserRunColumns runs, int from, int to) {
+            this.runs = runs;
+            this.from = from;
+            this.to = to;
+        }
+
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+            UserRunColumns r = runs;
+            char[] buf = new char[24];
+            gen.writeStartArray();
+            for (int i = from; i < to; i++) {
+                gen.writeStartObject();
+                gen.writeNumberField("runID", r.runIds[i]);
+                gen.writeNumberField("userID", r.userId);
+                gen.writeFieldName("runDate");
+                gen.writeString(buf, 0, formatDay(r.days[i], buf));
+                gen.writeFieldName("runDistance");
+                gen.writeNumber(buf, 0, formatCentis(r.distanceCentis[i], buf));
+                gen.writeFieldName("runDuration");
+                gen.writeString(buf, 0, formatDuration(r.seconds[i], buf));
+                gen.writeFieldName("runSpeed");
+                if (r.speedCentis[i] == Columns.NULL_INT) {
+                    gen.writeNull();
+                } else {
+                    gen.writeNumber(buf, 0, formatCentis(r.speedCentis[i], buf));
+                }
+                gen.writeStringField("unit", UNITS[r.units[i]]);
+                gen.writeStringField("additionalDetails", r.details[i]);
+                gen.writeBooleanField("isDeleted", false);
+                gen.writeNumberField("distanceMetres", r.metres[i]);
+                gen.writeNumberField("changeSeq", r.changeSeqs[i]);
+                gen.writeFieldName("updatedAt");
+                provider.defaultSerializeDateValue(r.updatedAt[i], gen);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+            serialize(gen, provider);
+        }
+    }
+
+    // yyyy-MM-dd, the days-to-civil-date conversion LocalDate.ofEpochDay does, without making a LocalDate
+    static int formatDay(int epochDay, char[] buf) {
+        long z = epochDay + 719468L;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        buf[0] = (char) ('0' + year / 1000 % 10);
+        buf[1] = (char) ('0' + year / 100 % 10);
+        buf[2] = (char) ('0' + year / 10 % 10);
+        buf[3] = (char) ('0' + year % 10);
+        buf[4] = '-';
+        buf[5] = (char) ('0' + month / 10);
+        buf[6] = (char) ('0' + month % 10);
+        buf[7] = '-';
+        buf[8] = (char) ('0' + day / 10);
+        buf[9] = (char) ('0' + day % 10);
+        return 10;
+    }
+
+    // a non-negative value in hundredths as BigDecimal.valueOf(centis, 2) prints it, e.g. 537 -> 5.37, 5 -> 0.05
+    static int formatCentis(int centis, char[] buf) {
+        int whole = centis / 100;
+        int len = writeInt(whole, buf, 0);
+        buf[len++] = '.';
+        buf[len++] = (char) ('0' + centis / 10 % 10);
+        buf[len++] = (char) ('0' + centis % 10);
+        return len;
+    }
+
+    // HH:mm:ss like UnitConverter.formatDuration
+    static int formatDuration(int totalSeconds, char[] buf) {
+        int hours = totalSeconds / 3600;
+        int len = 0;
+        if (hours < 10) {
+            buf[len++] = '0';
+        }
+        len = writeInt(hours, buf, len);
+        buf[len++] = ':';
+        buf[len++] = (char) ('0' + totalSeconds / 600 % 6);
+        buf[len++] = (char) ('0' + totalSeconds / 60 % 10);
+        buf[len++] = ':';
+        buf[len++] = (char) ('0' + totalSeconds % 60 / 10);
+        buf[len++] = (char) ('0' + totalSeconds % 10);
+        return len;
+    }
+
+    private static int writeInt(int value, char[] buf, int at) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = at + digits - 1, v = value; i >= at; i--, v /= 10) {
+            buf[i] = (char) ('0' + v % 10);
+        }
+        return at + digits;
+    }
+
+    // reads the rows of RunDao.streamRunColumns into the arrays, they have to come in the list order
+    static final class Builder implements RowCallbackHandler {
+        private static final String[] COLUMNS = { "runID", "runDate", "distanceMetres", "durationSeconds",
+                "runDistance", "runSpeed", "unit", "additionalDetails", "changeSeq", "updatedAt" };
+
+        private final int userId;
+        private final long version;
+        private int size;
+        private int[] index;
+        private int[] runIds;
+        private int[] days;
+        private int[] metres;
+        private int[] seconds;
+        private int[] distanceCentis;
+        private int[] speedCentis;
+        private byte[] units;
+        private String[] details;
+        private long[] changeSeqs;
+        private long[] updatedAt;
+        private long detailBytes;
+
+        Builder(int userId, long version) {
+            this(userId, version, 16);
+        }
+
+        Builder(int userId, long version, int capacity) {
+            this.userId = userId;
+            this.version = version;
+            int n = Math.max(capacity, 1);
+            runIds = new int[n];
+            days = new int[n];
+            metres = new int[n];
+            seconds = new int[n];
+            distanceCentis = new int[n];
+            speedCentis = new int[n];
+            units = new byte[n];
+            details = new String[n];
+            changeSeqs = new long[n];
+            updatedAt = new long[n];
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            if (index == null) {
+                index = Columns.resolve(rs, COLUMNS);
+            }
+            if (size == runIds.length) {
+                grow();
+            }
+            int i = size++;
+            runIds[i] = rs.getInt(index[0]);
+            days[i] = Columns.getEpochDay(rs, index[1]);
+            metres[i] = rs.getInt(index[2]);
+            seconds[i] = rs.getInt(index[3]);
+            distanceCentis[i] = Columns.getCentis(rs, index[4]);
+            speedCentis[i] = Columns.getCentis(rs, index[5]);
+            String unit = rs.getString(index[6]);
+            units[i] = (byte) ("miles".equals(unit) ? 2 : "km".equals(unit) ? 1 : 0);
+            details[i] = rs.getString(index[7]);
+            if (details[i] != null) {
+                detailBytes += 48 + details[i].length();
+            }
+            changeSeqs[i] = rs.getLong(index[8]);
+            Timestamp updated = rs.getTimestamp(index[9]);
+            updatedAt[i] = updated != null ? updated.getTime() : 0;
+        }
+
+        // copies row i of another copy, used by replace
+        void add(UserRunColumns from, int i) {
+            if (size == runIds.length) {
+                grow();
+            }
+            int j = size++;
+            runIds[j] = from.runIds[i];
+            days[j] = from.days[i];
+            metres[j] = from.metres[i];
+            seconds[j] = from.seconds[i];
+            distanceCentis[j] = from.distanceCentis[i];
+            speedCentis[j] = from.speedCentis[i];
+            units[j] = from.units[i];
+            details[j] = from.details[i];
+            if (details[j] != null) {
+                detailBytes += 48 + details[j].length();
+            }
+            changeSeqs[j] = from.changeSeqs[i];
+            updatedAt[j] = from.updatedAt[i];
+        }
+
+        private void grow() {
+            int capacity = runIds.length * 2;
+            runIds = Arrays.copyOf(runIds, capacity);
+            days = Arrays.copyOf(days, capacity);
+            metres = Arrays.copyOf(metres, capacity);
+            seconds = Arrays.copyOf(seconds, capacity);
+            distanceCentis = Arrays.copyOf(distanceCentis, capacity);
+            speedCentis = Arrays.copyOf(speedCentis, capacity);
+            units = Arrays.copyOf(units, capacity);
+            details = Arrays.copyOf(details, capacity);
+            changeSeqs = Arrays.copyOf(changeSeqs, capacity);
+            updatedAt = Arrays.copyOf(updatedAt, capacity);
+        }
+
+        UserRunColumns build() {
+            return new UserRunColumns(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.runningapp.util;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// this class sets up the virtual thread mode, it is off unless spring.threads.virtual.enabled=true on a Java 21+ runtime
+// spring boot then serves requests on virtual threads, and this class stops them from swamping the connection pool
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfiguration {
+
+	// wraps the datasource so only as many threads as the pool has connections (by default) can use it at once
+	// it is a static method since spring has to create bean post processors before the other beans
+	@Bean
+    public static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+                    return bean;
+                }
+                int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+                int maxConcurrency = environment.getProperty("runningapp.db.max-concurrency", Integer.class, poolSize);
+                long acquireTimeout = environment.getProperty("runningapp.db.acquire-timeout-ms", Long.class, 5000L);
+                System.out.println("Limiting database access to " + maxConcurrency + " concurrent connections");
+                return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeout);
+            }
+        };
+    }
+
+	// pinned virtual threads are reported when they stay pinned for longer than the threshold
+	@Bean
+    public PinningMonitor pinningMonitor(Environment environment) {
+        long thresholdMillis = environment.getProperty("runningapp.virtual-threads.pinning-threshold-ms", Long.class, 20L);
+        return new PinningMonitor(Duration.ofMillis(thresholdMillis));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.runningapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a cursor comes back from the client, anything that isn't one the codec wrote has to be an IllegalArgumentException
+// (which the list endpoints answer with 400 Invalid cursor) and never another exception that would be a 500
+class CursorCodecTests {
+
+	// a cursor with the given text inside, as a client editing one would make it
+	private static String tampered(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void runCursorRoundTrips() {
+		String cursor = CursorCodec.encodeRunCursor(LocalDate.of(2024, 2, 29), 12345);
+
+		assertEquals(Date.valueOf(LocalDate.of(2024, 2, 29)), CursorCodec.decodeRunDate(cursor));
+		assertEquals(12345, CursorCodec.decodeRunId(cursor));
+	}
+
+	@Test
+	void idCursorRoundTrips() {
+		assertEquals(987, CursorCodec.decodeId(CursorCodec.encodeIdCursor(987)));
+		assertEquals(Integer.MAX_VALUE, CursorCodec.decodeId(CursorCodec.encodeIdCursor(Integer.MAX_VALUE)));
+	}
+
+	@Test
+	void cursorIsUrlSafe() {
+		String cursor = CursorCodec.encodeRunCursor(LocalDate.of(2024, 12, 31), Integer.MAX_VALUE);
+
+		assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+	}
+
+	@Test
+	void malformedCursorIsInvalid() {
+		for (String cursor : new String[] { "%%%", "not base64!", "a" }) {
+			assertThrows(IllegalArgumentException.class, () -> CursorCodec.decodeRunDate(cursor), cursor);
+			assertThrows(IllegalArgumentException.class, () -> CursorCodec.decodeRunId(cursor), cursor);
+			assertThrows(IllegalArgumentException.class, () -> CursorCodec.decodeId(cursor), cursor);
+		}
+	}
+
+	@Test
+	void tamperedRunCursorIsInvalid() {
+		String[] raws = { "", "2024-05-01", "2024-05-01|", "|5", "2024-05-01|5|6", "yesterday|5", "2024-05-01|abc",
+				"2024-05-01|99999999999", "2024-05-01|5 OR 1=1" };
+		for (String raw : raws) {
+			String cursor = tampered(raw);
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CursorCodec.decodeRunDate(cursor), raw);
+			assertEquals("Invalid cursor", e.getMessage());
+			assertThrows(IllegalArgumentException.class, () -> CursorCodec.decodeRunId(cursor), raw);
+		}
+	}
+
+	@Test
+	void tamperedIdCursorIsInvalid() {
+		for (String raw : new String[] { "", "abc", "1;DROP", "2024-05-01|5", "99999999999" }) {
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CursorCodec.decodeId(tampered(raw)), raw);
+			assertEquals("Invalid cursor", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.exception.InvalidFieldsException;
+import com.example.runningapp.model.Run;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// only whitelisted names may reach the SELECT, and the key columns the DAOs need are read without being sent back
+class FieldSelectionTests {
+
+	// part of RunAPI's whitelist, with a JSON name that differs from its column
+	private static final Map<String, String> RUN_FIELDS = Map.of(
+			"runID", "runID", "runDate", "runDate", "runDistance", "runDistance",
+			"runDuration", "durationSeconds", "unit", "unit");
+
+	// configured as spring boot configures the application's mapper
+	private final ObjectMapper objectMapper = JsonMapper.builder()
+			.findAndAddModules()
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+			.build();
+
+	private static Run run() {
+		Run run = new Run();
+		run.setRunID(42);
+		run.setUserID(7);
+		run.setRunDate(LocalDate.of(2024, 5, 1));
+		run.setRunDistance(new BigDecimal("5.25"));
+		run.setRunDuration("00:30:00");
+		run.setUnit("km");
+		return run;
+	}
+
+	@Test
+	void noFieldsMeansWholeObjects() {
+		assertNull(FieldSelection.parse(null, RUN_FIELDS, "runID"));
+		assertNull(FieldSelection.parse(" ", RUN_FIELDS, "runID"));
+		assertNull(FieldSelection.parse(",,", RUN_FIELDS, "runID"));
+	}
+
+	@Test
+	void unknownFieldIsRejected() {
+		InvalidFieldsException e = assertThrows(InvalidFieldsException.class,
+				() -> FieldSelection.parse("runID,password", RUN_FIELDS, "runID"));
+		assertEquals("Unknown field: password", e.getMessage());
+
+		e = assertThrows(InvalidFieldsException.class, () -> FieldSelection.parse("1;DROP", RUN_FIELDS, "runID"));
+		assertEquals("Unknown field: 1;DROP", e.getMessage());
+
+		// a column name that is only on the right hand side of the whitelist isn't a field name
+		assertThrows(InvalidFieldsException.class, () -> FieldSelection.parse("durationSeconds", RUN_FIELDS, "runID"));
+	}
+
+	@Test
+	void columnsAreKeysThenRequestedFields() {
+		FieldSelection selection = FieldSelection.parse("runDistance, runDuration", RUN_FIELDS, "runID", "runDate");
+
+		assertEquals("runID, runDate, runDistance, durationSeconds", selection.getColumns());
+	}
+
+	@Test
+	void requestedKeyColumnIsSelectedOnce() {
+		FieldSelection selection = FieldSelection.parse("runDate,unit,runDate", RUN_FIELDS, "runID", "runDate");
+
+		assertEquals("runID, runDate, unit", selection.getColumns());
+	}
+
+	@Test
+	void keyColumnsAreOnlySentWhenRequested() throws IOException {
+		FieldSelection selection = FieldSelection.parse("runDistance,unit", RUN_FIELDS, "runID", "runDate");
+
+		assertEquals("[{\"runDistance\":5.25,\"unit\":\"km\"}]",
+				objectMapper.writeValueAsString(selection.project(List.of(run()))));
+	}
+
+	@Test
+	void requestedFieldsAreSentInRequestOrder() throws IOException {
+		FieldSelection selection = FieldSelection.parse("unit,runDate,runID", RUN_FIELDS, "runID", "runDate");
+
+		assertEquals("[{\"unit\":\"km\",\"runDate\":\"2024-05-01\",\"runID\":42}]",
+				objectMapper.writeValueAsString(selection.project(List.of(run()))));
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.runningapp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the tracks here run along the equator, where 0.01 degrees of longitude is a known distance
+class GpxParserTests {
+
+	// 0.01 degrees of a great circle on the sphere GpxParser uses
+	private static final double HUNDREDTH_DEGREE_METRES = 2 * Math.PI * 6_371_008.8 * 0.01 / 360;
+
+	private static GpxParser.GpxTrack parse(String gpx) {
+		return GpxParser.parse(new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static String point(double lon, String time) {
+		return "<trkpt lat=\"0\" lon=\"" + lon + "\">" + (time == null ? "" : "<time>" + time + "</time>") + "</trkpt>";
+	}
+
+	private static String gpx(String... points) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + gpxElement("Morning run", points);
+	}
+
+	private static String gpxElement(String name, String... points) {
+		return "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\">"
+				+ "<trk><name>" + name + "</name><trkseg>" + String.join("", points) + "</trkseg></trk></gpx>";
+	}
+
+	@Test
+	void twoPointTrackHasKnownDistance() {
+		GpxParser.GpxTrack track = parse(gpx(
+				point(0, "2024-05-01T07:00:00Z"),
+				point(0.01, "2024-05-01T07:05:00Z")));
+
+		assertEquals(HUNDREDTH_DEGREE_METRES, track.getDistanceMetres(), 0.001);
+		assertEquals(300, track.getMovingSeconds());
+		assertEquals(Instant.parse("2024-05-01T07:00:00Z"), track.getStartTime());
+		assertEquals("Morning run", track.getName());
+	}
+
+	@Test
+	void pauseIsNotMovingTime() {
+		// ten minutes stood still between the second and third points
+		GpxParser.GpxTrack track = parse(gpx(
+				point(0, "2024-05-01T07:00:00Z"),
+				point(0.01, "2024-05-01T07:05:00Z"),
+				point(0.01, "2024-05-01T07:15:00Z"),
+				point(0.02, "2024-05-01T07:20:00Z")));
+
+		assertEquals(2 * HUNDREDTH_DEGREE_METRES, track.getDistanceMetres(), 0.001);
+		assertEquals(600, track.getMovingSeconds());
+	}
+
+	@Test
+	void trackWithoutTimestampsIsRefused() {
+		String gpx = gpx(point(0, null), point(0.01, null), point(0.02, null));
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parse(gpx));
+		assertEquals("GPX track has no timestamps", e.getMessage());
+	}
+
+	@Test
+	void externalEntityIsRefused(@TempDir Path dir) throws IOException {
+		Path secret = dir.resolve("secret.txt");
+		Files.writeString(secret, "not for uploads");
+		String gpx = "<?xml version=\"1.0\"?>"
+				+ "<!DOCTYPE gpx [<!ENTITY secret SYSTEM \"" + secret.toUri() + "\">]>"
+				+ gpxElement("&secret;", point(0, "2024-05-01T07:00:00Z"), point(0.01, "2024-05-01T07:05:00Z"));
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parse(gpx));
+		assertFalse(e.getMessage().contains("not for uploads"));
+	}
+
+	@Test
+	void doctypeWithoutEntitiesIsRefused() {
+		String gpx = "<?xml version=\"1.0\"?><!DOCTYPE gpx>"
+				+ gpxElement("Morning run", point(0, "2024-05-01T07:00:00Z"), point(0.01, "2024-05-01T07:05:00Z"));
+
+		assertThrows(IllegalArgumentException.class, () -> parse(gpx));
+	}
+}
@@ -0,0 +1,73 @@
+package com.example.runningapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleCodecTests {
+
+	// decodes every sample and checks it against what was encoded
+	private void assertRoundTrip(int[] elapsed, int[] distance, int[] pace) {
+		SampleCodec.Decoder decoder = new SampleCodec.Decoder(SampleCodec.encode(elapsed, distance, pace));
+		assertEquals(elapsed.length, decoder.getCount());
+		for (int i = 0; i < elapsed.length; i++) {
+			assertTrue(decoder.hasNext());
+			decoder.next();
+			assertEquals(elapsed[i], decoder.getElapsedSeconds(), "elapsed " + i);
+			assertEquals(distance[i], decoder.getDistanceDecimetres(), "distance " + i);
+			assertEquals(pace[i], decoder.getPaceDecisecondsPerKm(), "pace " + i);
+		}
+		assertFalse(decoder.hasNext());
+	}
+
+	// an hour at one sample per second, running at about 5:00/km with some noise and a few stops
+	private static int[][] hourRun(long seed) {
+		Random random = new Random(seed);
+		int n = 3600;
+		int[] elapsed = new int[n];
+		int[] distance = new int[n];
+		int[] pace = new int[n];
+		for (int i = 0; i < n; i++) {
+			boolean stopped = i % 600 < 10;
+			elapsed[i] = i;
+			distance[i] = (i == 0 ? 0 : distance[i - 1]) + (stopped ? 0 : 30 + random.nextInt(7));
+			pace[i] = stopped ? 0 : 3000 + random.nextInt(200) - 100;
+		}
+		return new int[][] { elapsed, distance, pace };
+	}
+
+	@Test
+	void roundTripsAnHourRun() {
+		int[][] run = hourRun(1);
+		assertRoundTrip(run[0], run[1], run[2]);
+	}
+
+	@Test
+	void anHourRunIsAFewKilobytes() {
+		int[][] run = hourRun(2);
+		byte[] data = SampleCodec.encode(run[0], run[1], run[2]);
+		// 3600 samples of three ints would be 43200 bytes raw
+		assertTrue(data.length < 8 * 1024, "encoded to " + data.length + " bytes");
+	}
+
+	@Test
+	void roundTripsLargeJumpsAndExtremes() {
+		// deltas that overflow an int still come back, the arithmetic wraps the same way both ways
+		int[] elapsed = { 0, Integer.MAX_VALUE, 0, Integer.MIN_VALUE, 5 };
+		int[] distance = { 10_000_000, 0, 10_000_000, 1, 0 };
+		int[] pace = { 0, 864_000, 0, 864_000, 1 };
+		assertRoundTrip(elapsed, distance, pace);
+	}
+
+	@Test
+	void roundTripsASingleSample() {
+		assertRoundTrip(new int[] { 7 }, new int[] { 123 }, new int[] { 2950 });
+	}
+
+	@Test
+	void rejectsCorruptData() {
+		assertThrows(IllegalArgumentException.class, () -> new SampleCodec.Decoder(new byte[] { 1, 2, 3, 4 }));
+	}
+}
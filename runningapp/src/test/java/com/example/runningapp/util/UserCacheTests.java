@@ -0,0 +1,157 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.model.CacheStats;
+import com.example.runningapp.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTests {
+
+	// stands in for the users table, name holds the version of the row so readers can tell how old it is
+	private final Map<Integer, User> table = new ConcurrentHashMap<>();
+
+	private User loadFromTable(int userId) {
+		User row = table.get(userId);
+		LockSupport.parkNanos(20_000); // widen the gap between reading the row and caching it
+		return row == null ? null : new User(row.getUserID(), row.getUsername(), row.getName(),
+				row.getPassword(), row.getUnitPreference(), row.isDeleted());
+	}
+
+	@Test
+	void neverServesStaleUnitPreferenceAfterUpdate() throws Exception {
+		UserCache cache = new UserCache(100);
+		table.put(1, new User(1, "runner", "0", "hash", "km", false));
+
+		AtomicInteger committedVersion = new AtomicInteger(0);
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicInteger staleReads = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(9);
+
+		// readers check that every read is at least as new as the last update that had finished before it started
+		for (int r = 0; r < 8; r++) {
+			pool.submit(() -> {
+				start.await();
+				while (running.get()) {
+					int mustSee = committedVersion.get();
+					User user = cache.getById(1, this::loadFromTable);
+					int version = Integer.parseInt(user.getName());
+					String expectedUnit = version % 2 == 0 ? "km" : "miles";
+					if (version < mustSee || !expectedUnit.equals(user.getUnitPreference())) {
+						staleReads.incrementAndGet();
+					}
+				}
+				return null;
+			});
+		}
+
+		// the writer does what UserDao.updateUser does: write the row, then invalidate
+		Future<?> writer = pool.submit(() -> {
+			start.await();
+			for (int version = 1; version <= 2000; version++) {
+				table.put(1, new User(1, "runner", Integer.toString(version), "hash", version % 2 == 0 ? "km" : "miles", false));
+				cache.invalidate(1);
+				committedVersion.set(version);
+			}
+			return null;
+		});
+
+		start.countDown();
+		writer.get(30, TimeUnit.SECONDS);
+		running.set(false);
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+		assertEquals(0, staleReads.get());
+		User finalUser = cache.getById(1, this::loadFromTable);
+		assertEquals("2000", finalUser.getName());
+		assertEquals("km", finalUser.getUnitPreference());
+	}
+
+	@Test
+	void loadThatRacesAnUpdateIsNotCached() throws Exception {
+		UserCache cache = new UserCache(10);
+		table.put(1, new User(1, "runner", "0", "hash", "km", false));
+
+		CountDownLatch rowRead = new CountDownLatch(1);
+		CountDownLatch updated = new CountDownLatch(1);
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+
+		// this read gets the old row, then waits while the update happens before it can cache it
+		Future<User> slowRead = pool.submit(() -> cache.getById(1, id -> {
+			User old = loadFromTable(id);
+			rowRead.countDown();
+			try {
+				updated.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return old;
+		}));
+
+		rowRead.await();
+		table.put(1, new User(1, "runner", "1", "hash", "miles", false));
+		cache.invalidate(1);
+		updated.countDown();
+
+		assertEquals("km", slowRead.get(5, TimeUnit.SECONDS).getUnitPreference());
+		assertEquals("miles", cache.getById(1, this::loadFromTable).getUnitPreference());
+		pool.shutdown();
+	}
+
+	@Test
+	void changesToReturnedUserDoNotLeakIntoCache() {
+		UserCache cache = new UserCache(10);
+		table.put(1, new User(1, "runner", "Runner", "hash", "km", false));
+
+		User first = cache.getByUsername("runner", name -> loadFromTable(1));
+		first.setPassword(null); // what login does before sending the user back
+
+		User second = cache.getByUsername("runner", name -> fail("should be cached"));
+		assertEquals("hash", second.getPassword());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedWhenFull() {
+		UserCache cache = new UserCache(2);
+		for (int id = 1; id <= 3; id++) {
+			table.put(id, new User(id, "user" + id, "User", "hash", "km", false));
+		}
+
+		cache.getById(1, this::loadFromTable);
+		cache.getById(2, this::loadFromTable);
+		cache.getById(1, this::loadFromTable); // 1 is now more recent than 2
+		cache.getById(3, this::loadFromTable); // pushes out 2
+
+		CacheStats stats = cache.getStats();
+		assertEquals(1, stats.getHits());
+		assertEquals(3, stats.getMisses());
+		assertEquals(1, stats.getEvictions());
+		assertNotNull(cache.getById(1, id -> fail("1 should still be cached")));
+	}
+
+	@Test
+	void invalidateDropsOldUsername() {
+		UserCache cache = new UserCache(10);
+		table.put(1, new User(1, "oldname", "Runner", "hash", "km", false));
+		cache.getByUsername("oldname", name -> loadFromTable(1));
+
+		table.put(1, new User(1, "newname", "Runner", "hash", "km", false));
+		cache.invalidate(1);
+
+		// the old name no longer exists in the table, so the loader must be asked again
+		assertNull(cache.getByUsername("oldname", name -> null));
+	}
+}
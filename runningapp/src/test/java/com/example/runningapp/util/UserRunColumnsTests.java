@@ -0,0 +1,86 @@
+package com.example.runningapp.util;
+
+import com.example.runningapp.model.Run;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the Slice writes runDate, runDistance/runSpeed and runDuration with its own formatters, these check that they
+// give exactly the text Jackson writes for the same fields of a Run
+class UserRunColumnsTests {
+
+	// configured as spring boot configures the application's mapper
+	private final ObjectMapper objectMapper = JsonMapper.builder()
+			.findAndAddModules()
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+			.build();
+
+	private final char[] buf = new char[24];
+
+	// the text Jackson writes for one field of the run, without the quotes of a string
+	private String jacksonText(Run run, String field) throws IOException {
+		try (JsonParser parser = objectMapper.createParser(objectMapper.writeValueAsString(run))) {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				if (token == JsonToken.FIELD_NAME && field.equals(parser.currentName())) {
+					parser.nextToken();
+					return parser.getText();
+				}
+			}
+		}
+		throw new AssertionError("no " + field + " in the JSON");
+	}
+
+	private static Run run() {
+		Run run = new Run();
+		run.setUnit("km");
+		return run;
+	}
+
+	@Test
+	void formatDayMatchesJackson() throws IOException {
+		Run run = run();
+		int from = (int) LocalDate.of(1900, 1, 1).toEpochDay();
+		int to = (int) LocalDate.of(2100, 12, 31).toEpochDay();
+		for (int day = from; day <= to; day++) {
+			run.setRunDay(day);
+			assertEquals(jacksonText(run, "runDate"), new String(buf, 0, UserRunColumns.formatDay(day, buf)), "day " + day);
+		}
+	}
+
+	@Test
+	void formatCentisMatchesJackson() throws IOException {
+		Run run = run();
+		// every value DECIMAL(6,2) holds
+		for (int centis = 0; centis <= 999_999; centis++) {
+			run.setDistanceCentis(centis);
+			assertEquals(jacksonText(run, "runDistance"), new String(buf, 0, UserRunColumns.formatCentis(centis, buf)), "centis " + centis);
+		}
+		for (int centis : new int[] { 1_000_000, 12_345_678, Integer.MAX_VALUE }) {
+			run.setSpeedCentis(centis);
+			assertEquals(jacksonText(run, "runSpeed"), new String(buf, 0, UserRunColumns.formatCentis(centis, buf)), "centis " + centis);
+		}
+	}
+
+	@Test
+	void formatDurationMatchesJackson() throws IOException {
+		Run run = run();
+		// every second up to 100 hours, then a few longer ones where the hours need more digits
+		for (int seconds = 0; seconds <= 100 * 3600; seconds++) {
+			run.setDurationSeconds(seconds);
+			assertEquals(jacksonText(run, "runDuration"), new String(buf, 0, UserRunColumns.formatDuration(seconds, buf)), "seconds " + seconds);
+		}
+		for (int seconds : new int[] { 999 * 3600 + 3599, 1000 * 3600, 123_456_789, Integer.MAX_VALUE }) {
+			run.setDurationSeconds(seconds);
+			assertEquals(jacksonText(run, "runDuration"), new String(buf, 0, UserRunColumns.formatDuration(seconds, buf)), "seconds " + seconds);
+		}
+	}
+}